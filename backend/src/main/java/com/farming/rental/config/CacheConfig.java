@@ -0,0 +1,20 @@
+package com.farming.rental.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache Configuration
+ * Caches are Caffeine-backed; size, TTL and stats recording come from spring.cache.caffeine.spec
+ * Each instance has its own caches and evicts only its own entries on writes, so other instances
+ * may serve a changed or deleted listing until the entry expires (expireAfterWrite, 5 minutes).
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String EQUIPMENT = "equipment";
+    public static final String AVAILABLE_EQUIPMENT = "availableEquipment";
+    public static final String EQUIPMENT_BY_CATEGORY = "equipmentByCategory";
+    public static final String BOOKING_PARTICIPANTS = "bookingParticipants";
+}
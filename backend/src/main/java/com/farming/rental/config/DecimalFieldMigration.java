@@ -0,0 +1,56 @@
+package com.farming.rental.config;
+
+import com.farming.rental.entity.Equipment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.Decimal128;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Converts equipment prices and ratings stored as strings into Decimal128,
+ * so the catalog can sort and range-filter on them numerically.
+ * Missing ratings are set to zero, since the catalog only lists equipment with a rating to page by.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DecimalFieldMigration implements CommandLineRunner {
+
+    private static final List<String> DECIMAL_FIELDS =
+        List.of("price_per_hour", "price_per_day", "price_per_week", "rating");
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) throws Exception {
+        for (String field : DECIMAL_FIELDS) {
+            long converted = mongoTemplate.updateMulti(
+                new Query(Criteria.where(field).type(2)), // BSON string
+                AggregationUpdate.update().set(field).toValue(ConvertOperators.ToDecimal.toDecimal("$" + field)),
+                Equipment.class
+            ).getModifiedCount();
+            if (converted > 0) {
+                log.info("Converted {} equipment {} values to Decimal128", converted, field);
+            }
+        }
+
+        long rated = mongoTemplate.updateMulti(
+            new Query(Criteria.where("rating").is(null)), // null or missing
+            new Update().set("rating", new Decimal128(BigDecimal.ZERO)),
+            Equipment.class
+        ).getModifiedCount();
+        if (rated > 0) {
+            log.info("Set a zero rating on {} unrated equipment", rated);
+        }
+    }
+}
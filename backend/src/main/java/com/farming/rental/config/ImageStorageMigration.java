@@ -0,0 +1,69 @@
+package com.farming.rental.config;
+
+import com.farming.rental.service.ImageStore;
+import com.farming.rental.service.LocalImageStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Moves images left in the local upload directory into the configured image store,
+ * when images.migrate-local is enabled. Safe to re-run after an interruption:
+ * a file is only deleted locally once the store has it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStorageMigration implements CommandLineRunner {
+
+    private final ImageStore imageStore;
+
+    @Value("${images.migrate-local:false}")
+    private boolean migrateLocal;
+
+    @Value("${images.upload-dir:uploads/equipment}")
+    private String uploadDir;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path dir = Paths.get(uploadDir);
+        if (!migrateLocal || imageStore instanceof LocalImageStore || !Files.isDirectory(dir)) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            // Skip temporary files of uploads and variants in progress
+            files = listing.filter(Files::isRegularFile)
+                .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                .toList();
+        }
+
+        int migrated = 0;
+        int failed = 0;
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            try {
+                if (!imageStore.exists(fileName)) {
+                    imageStore.put(fileName, file);
+                }
+                Files.deleteIfExists(file);
+                migrated++;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to migrate image {}: {}", fileName, e.getMessage());
+                failed++;
+            }
+        }
+        log.info("Migrated {} images into {} in {} ms ({} failed, left in place)",
+            migrated, imageStore.getClass().getSimpleName(), System.currentTimeMillis() - startedAt, failed);
+    }
+}
@@ -0,0 +1,70 @@
+package com.farming.rental.config;
+
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.service.ImageVariantService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Sets the thumbnail and medium image URLs on equipment saved before image variants existed.
+ * The variant files themselves are generated on their first request. Safe to re-run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageVariantMigration implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final MongoTemplate mongoTemplate;
+    private final ImageVariantService imageVariantService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Query missing = new Query(Criteria.where("image_url").ne(null)
+            .orOperator(Criteria.where("thumbnail_url").exists(false), Criteria.where("medium_url").exists(false)));
+        missing.fields().include("image_url");
+        String collection = mongoTemplate.getCollectionName(Equipment.class);
+
+        long startedAt = System.currentTimeMillis();
+        long updated = 0;
+        List<Document> batch = new ArrayList<>();
+        try (Stream<Document> equipment = mongoTemplate.stream(missing, Document.class, collection)) {
+            Iterator<Document> iterator = equipment.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+                    updated += setVariantUrls(collection, batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (updated > 0) {
+            log.info("Set image variant URLs on {} equipment in {} ms", updated, System.currentTimeMillis() - startedAt);
+        }
+    }
+
+    private int setVariantUrls(String collection, List<Document> batch) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        for (Document doc : batch) {
+            String imageUrl = doc.getString("image_url");
+            bulk.updateOne(new Query(Criteria.where("_id").is(doc.get("_id"))), new Update()
+                .set("thumbnail_url", imageVariantService.variantUrl(imageUrl, ImageVariantService.Variant.THUMBNAIL))
+                .set("medium_url", imageVariantService.variantUrl(imageUrl, ImageVariantService.Variant.MEDIUM)));
+        }
+        return bulk.execute().getModifiedCount();
+    }
+}
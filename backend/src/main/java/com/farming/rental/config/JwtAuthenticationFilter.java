@@ -0,0 +1,49 @@
+package com.farming.rental.config;
+
+import com.farming.rental.dto.AuthenticatedUser;
+import com.farming.rental.service.JwtService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Authenticates requests from the Bearer access token in the Authorization header
+ * EventSource can not set headers, so the chat event stream is opened with a short-lived stream
+ * ticket in the ticket parameter instead. Access tokens never travel in URLs.
+ */
+@RequiredArgsConstructor
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String STREAM_PATH = "/api/messages/stream";
+
+    private final JwtService jwtService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<AuthenticatedUser> caller = Optional.empty();
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            caller = jwtService.parseAccessToken(header.substring(BEARER_PREFIX.length()));
+        } else if (STREAM_PATH.equals(request.getRequestURI()) && request.getParameter("ticket") != null) {
+            caller = jwtService.parseStreamTicket(request.getParameter("ticket"));
+        }
+        caller.ifPresent(user -> {
+            var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()));
+            SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, authorities));
+        });
+        chain.doFilter(request, response);
+    }
+}
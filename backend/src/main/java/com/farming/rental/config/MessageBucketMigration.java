@@ -0,0 +1,93 @@
+package com.farming.rental.config;
+
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.MessageBucket;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves chat messages stored one document per message into message buckets,
+ * when bucketed storage is enabled. Safe to re-run after an interruption.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MessageBucketMigration implements CommandLineRunner {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${chat.storage.bucketed:false}")
+    private boolean bucketed;
+
+    @Value("${chat.storage.bucket-size:100}")
+    private int bucketSize;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (!bucketed || !mongoTemplate.exists(new Query(), Message.class)) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        int migrated = 0;
+
+        List<String> bookingIds = mongoTemplate.findDistinct(new Query(), "bookingId", Message.class, String.class);
+        for (String bookingId : bookingIds) {
+            migrated += migrateBooking(bookingId);
+        }
+        log.info("Migrated {} messages of {} bookings into buckets in {} ms",
+            migrated, bookingIds.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    private int migrateBooking(String bookingId) {
+        // Raw documents keep the sender and receiver DBRefs unresolved
+        Query query = new Query(Criteria.where("booking_id").is(bookingId));
+        query.with(Sort.by("created_at", "_id"));
+        ConversionService conversionService = mongoTemplate.getConverter().getConversionService();
+
+        List<MessageBucket.Entry> entries = new ArrayList<>();
+        List<Object> ids = new ArrayList<>();
+        for (Document doc : mongoTemplate.find(query, Document.class, "messages")) {
+            if (!(doc.get("sender_id") instanceof DBRef sender) || !(doc.get("receiver_id") instanceof DBRef receiver)) {
+                continue; // Left in place for manual inspection
+            }
+            ids.add(doc.get("_id"));
+            entries.add(new MessageBucket.Entry(doc.get("_id").toString(),
+                sender.getId().toString(), receiver.getId().toString(), doc.getString("content"),
+                conversionService.convert(doc.getDate("created_at"), LocalDateTime.class),
+                Boolean.TRUE.equals(doc.getBoolean("is_read"))));
+        }
+
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // Drop buckets left by an interrupted earlier run before writing them again
+        mongoTemplate.remove(new Query(Criteria.where("bookingId").is(bookingId)
+            .and("messages.message_id").in(entries.stream().map(MessageBucket.Entry::getMessageId).toList())),
+            MessageBucket.class);
+
+        List<MessageBucket> buckets = new ArrayList<>();
+        for (int from = 0; from < entries.size(); from += bucketSize) {
+            List<MessageBucket.Entry> chunk = new ArrayList<>(entries.subList(from, Math.min(from + bucketSize, entries.size())));
+            buckets.add(new MessageBucket(null, bookingId, chunk.size(),
+                chunk.get(0).getCreatedAt(), chunk.get(chunk.size() - 1).getCreatedAt(), chunk));
+        }
+        mongoTemplate.insert(buckets, MessageBucket.class);
+        mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), "messages");
+        return entries.size();
+    }
+}
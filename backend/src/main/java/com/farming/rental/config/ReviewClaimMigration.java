@@ -0,0 +1,66 @@
+package com.farming.rental.config;
+
+import com.farming.rental.entity.Review;
+import com.farming.rental.service.BookingService;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Links reviews written before reviews were tied to a booking to one of the farmer's completed
+ * bookings of the equipment, and marks that booking reviewed, so the same rental can not be
+ * reviewed a second time. Reviews with no completed booking left are kept as they are.
+ * Linked reviews are skipped on the next start, so this is safe to re-run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReviewClaimMigration implements CommandLineRunner {
+
+    private final MongoTemplate mongoTemplate;
+    private final BookingService bookingService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        Query legacy = new Query(Criteria.where("booking_id").exists(false))
+            .with(Sort.by("created_at"));
+        legacy.fields().include("farmer_id").include("equipment_id");
+        String collection = mongoTemplate.getCollectionName(Review.class);
+
+        long startedAt = System.currentTimeMillis();
+        long linked = 0;
+        long unmatched = 0;
+        try (Stream<Document> reviews = mongoTemplate.stream(legacy, Document.class, collection)) {
+            for (Document review : (Iterable<Document>) reviews::iterator) {
+                if (!(review.get("farmer_id") instanceof DBRef farmer)
+                        || !(review.get("equipment_id") instanceof DBRef equipment)) {
+                    unmatched++;
+                    continue;
+                }
+                String bookingId = bookingService.claimBookingForReview(
+                    farmer.getId().toString(), equipment.getId().toString());
+                if (bookingId == null) {
+                    unmatched++;
+                    continue;
+                }
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(review.get("_id"))),
+                    new Update().set("booking_id", bookingId), collection);
+                linked++;
+            }
+        }
+        if (linked > 0) {
+            log.info("Linked {} reviews to their bookings in {} ms ({} without a completed booking)",
+                linked, System.currentTimeMillis() - startedAt, unmatched);
+        }
+    }
+}
@@ -1,15 +1,19 @@
 package com.farming.rental.config;
 
+import com.farming.rental.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
-import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
-import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -25,6 +29,8 @@ import java.util.Arrays;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    private final JwtService jwtService;
+
     /**
      * Configure HTTP security
      */
@@ -34,6 +40,8 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authz -> authz
+                // Completion of long-lived async responses (chat event streams) was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/login", "/register", "/request-otp", "/verify-otp", 
                                 "/static/**", "/css/**", "/js/**", "/images/**", "/h2-console/**",
                                 "/api/auth/**", "/api/public/**").permitAll()
@@ -43,32 +51,18 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form.disable()) // Using custom OTP login
-            .logout(logout -> logout
-                .logoutUrl("/api/auth/logout")
-                .logoutSuccessHandler((request, response, authentication) -> {
-                    response.setStatus(jakarta.servlet.http.HttpServletResponse.SC_OK);
-                    response.getWriter().write("{\"message\": \"Logged out\"}");
-                })
-                .invalidateHttpSession(true)
-                .clearAuthentication(true)
-            );
+            .logout(logout -> logout.disable()) // Logout revokes the refresh token in AuthApiController
+            .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)));
         // Allow H2 console to be displayed in a frame
         http.headers(headers -> headers.frameOptions(frame -> frame.disable()));
         
-        // Enable session-based security context storage so authentication persists across requests
-        http.securityContext(sc -> sc.securityContextRepository(securityContextRepository()));
+        // Stateless: every request is authenticated from its access token, so any instance can serve it
+        http.sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+        http.addFilterBefore(new JwtAuthenticationFilter(jwtService), UsernamePasswordAuthenticationFilter.class);
         
         return http.build();
     }
 
-    /**
-     * Bean for session-based SecurityContext storage
-     */
-    @Bean
-    public SecurityContextRepository securityContextRepository() {
-        return new HttpSessionSecurityContextRepository();
-    }
-
     /**
      * CORS configuration
      */
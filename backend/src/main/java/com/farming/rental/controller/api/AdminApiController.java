@@ -1,21 +1,24 @@
 package com.farming.rental.controller.api;
 
-import com.farming.rental.entity.Booking;
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.PlatformStats;
 import com.farming.rental.entity.User;
 import com.farming.rental.service.BookingService;
+import com.farming.rental.service.CacheStatsService;
 import com.farming.rental.service.EquipmentService;
+import com.farming.rental.service.ImageStorageService;
+import com.farming.rental.service.PlatformStatsService;
 import com.farming.rental.service.UserService;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -27,46 +30,50 @@ public class AdminApiController {
     private final UserService userService;
     private final EquipmentService equipmentService;
     private final BookingService bookingService;
+    private final CacheStatsService cacheStatsService;
+    private final PlatformStatsService platformStatsService;
+    private final ImageStorageService imageStorageService;
+    private static final int DASHBOARD_LIST_SIZE = 10;
 
-    private boolean isAdmin(HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        return user != null && user.getRole() == User.UserRole.ADMIN;
+    private boolean isAdmin(AuthenticatedUser user) {
+        return user != null && user.hasRole(User.UserRole.ADMIN);
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<?> getDashboardStats(HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> getDashboardStats(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
 
-        List<User> allUsers = userService.getAllUsers();
-        List<Equipment> allEquipment = equipmentService.getAllEquipment();
-        List<Booking> allBookings = bookingService.getAllBookings();
-
-        BigDecimal totalRevenue = allBookings.stream()
-                .filter(b -> b.getStatus() == Booking.BookingStatus.CONFIRMED || b.getStatus() == Booking.BookingStatus.COMPLETED)
-                .map(Booking::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Counters are materialized; only the two short lists are queried, each with an indexed sort and limit
+        PlatformStats platformStats = platformStatsService.getStats();
 
         Map<String, Object> stats = Map.of(
-                "totalUsers", allUsers.size(),
-                "totalEquipment", allEquipment.size(),
-                "totalBookings", allBookings.size(),
-                "totalRevenue", totalRevenue,
-                "pendingEquipment", allEquipment.stream().filter(e -> !e.getIsApproved()).toList(),
-                "recentBookings", allBookings.stream().limit(10).toList()
+                "totalUsers", platformStats.getTotalUsers(),
+                "totalEquipment", platformStats.getTotalEquipment(),
+                "totalBookings", platformStats.getTotalBookings(),
+                "totalRevenue", platformStats.getTotalRevenue(),
+                "pendingEquipmentCount", platformStats.getPendingEquipment(),
+                "pendingEquipment", equipmentService.getPendingEquipment(DASHBOARD_LIST_SIZE),
+                "recentBookings", bookingService.getRecentBookings(DASHBOARD_LIST_SIZE)
         );
 
         return ResponseEntity.ok(stats);
     }
 
+    @PostMapping("/dashboard/rebuild")
+    public ResponseEntity<?> rebuildDashboardStats(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
+        return ResponseEntity.ok(platformStatsService.rebuild());
+    }
+
     @GetMapping("/users")
-    public ResponseEntity<?> getAllUsers(HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> getAllUsers(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
     @PostMapping("/users/{userId}/block")
-    public ResponseEntity<?> blockUser(@PathVariable String userId, HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> blockUser(@PathVariable String userId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         try {
             userService.blockUser(userId);
             return ResponseEntity.ok(Map.of("message", "User blocked"));
@@ -76,8 +83,8 @@ public class AdminApiController {
     }
 
     @PostMapping("/users/{userId}/unblock")
-    public ResponseEntity<?> unblockUser(@PathVariable String userId, HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> unblockUser(@PathVariable String userId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         try {
             userService.unblockUser(userId);
             return ResponseEntity.ok(Map.of("message", "User unblocked"));
@@ -87,8 +94,8 @@ public class AdminApiController {
     }
 
     @PostMapping("/equipment/{equipmentId}/approve")
-    public ResponseEntity<?> approveEquipment(@PathVariable String equipmentId, HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> approveEquipment(@PathVariable String equipmentId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         try {
             equipmentService.approveEquipment(equipmentId);
             return ResponseEntity.ok(Map.of("message", "Equipment approved"));
@@ -98,8 +105,8 @@ public class AdminApiController {
     }
 
     @DeleteMapping("/equipment/{equipmentId}")
-    public ResponseEntity<?> deleteEquipment(@PathVariable String equipmentId, HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> deleteEquipment(@PathVariable String equipmentId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         try {
             equipmentService.deleteEquipment(equipmentId);
             return ResponseEntity.ok(Map.of("message", "Equipment removed"));
@@ -109,8 +116,8 @@ public class AdminApiController {
     }
 
     @GetMapping("/equipment")
-    public ResponseEntity<?> getAllEquipment(HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> getAllEquipment(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         return ResponseEntity.ok(equipmentService.getAllEquipment());
     }
 
@@ -128,8 +135,8 @@ public class AdminApiController {
                                              @RequestParam String availabilityFrom,
                                              @RequestParam String availabilityTo,
                                              @RequestParam(required = false) MultipartFile image,
-                                             HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+                                             @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
 
         try {
             Equipment equipment = equipmentService.getEquipmentById(equipmentId)
@@ -151,11 +158,7 @@ public class AdminApiController {
             equipment.setAvailabilityTo(LocalDate.parse(availabilityTo));
 
             if (image != null && !image.isEmpty()) {
-                String fileName = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                java.nio.file.Path uploadPath = java.nio.file.Paths.get("uploads/equipment/");
-                java.nio.file.Files.createDirectories(uploadPath);
-                java.nio.file.Files.write(uploadPath.resolve(fileName), image.getBytes());
-                equipment.setImageUrl("/images/uploads/" + fileName);
+                equipment.setImageUrl(imageStorageService.store(image));
             }
 
             Equipment updated = equipmentService.updateEquipment(equipment);
@@ -166,14 +169,14 @@ public class AdminApiController {
     }
 
     @GetMapping("/bookings")
-    public ResponseEntity<?> getAllBookings(HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> getAllBookings(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         return ResponseEntity.ok(bookingService.getAllBookings());
     }
 
     @PostMapping("/bookings/{bookingId}/cancel")
-    public ResponseEntity<?> cancelBooking(@PathVariable String bookingId, HttpSession session) {
-        if (!isAdmin(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> cancelBooking(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
         try {
             bookingService.rejectBooking(bookingId); // reusable logic
             return ResponseEntity.ok(Map.of("message", "Booking cancelled by admin"));
@@ -181,4 +184,17 @@ public class AdminApiController {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<?> getCacheStats(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
+        return ResponseEntity.ok(cacheStatsService.getStats());
+    }
+
+    @PostMapping("/cache/clear")
+    public ResponseEntity<?> clearCaches(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isAdmin(user)) return ResponseEntity.status(403).build();
+        cacheStatsService.clearAll();
+        return ResponseEntity.ok(Map.of("message", "Caches cleared"));
+    }
 }
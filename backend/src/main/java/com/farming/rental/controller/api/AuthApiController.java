@@ -1,19 +1,19 @@
 package com.farming.rental.controller.api;
 
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.dto.UserRegistrationDTO;
 import com.farming.rental.entity.User;
+import com.farming.rental.exception.RateLimitExceededException;
 import com.farming.rental.service.OTPService;
+import com.farming.rental.service.RefreshTokenService;
 import com.farming.rental.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -27,14 +27,16 @@ public class AuthApiController {
 
     private final OTPService otpService;
     private final UserService userService;
+    private final RefreshTokenService refreshTokenService;
 
     @PostMapping("/login")
-    public ResponseEntity<?> requestOTP(@RequestParam String phoneNumber, HttpSession session) {
+    public ResponseEntity<?> requestOTP(@RequestParam String phoneNumber, HttpServletRequest request) {
         log.info("API OTP request for: {}", phoneNumber);
         try {
-            otpService.generateOTP(phoneNumber);
-            session.setAttribute("tempPhoneNumber", phoneNumber);
+            otpService.generateOTP(phoneNumber, clientIp(request));
             return ResponseEntity.ok(Map.of("message", "OTP sent successfully"));
+        } catch (RateLimitExceededException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -43,11 +45,14 @@ public class AuthApiController {
     @PostMapping("/verify-otp")
     public ResponseEntity<?> verifyOTP(@RequestParam String phoneNumber,
                                        @RequestParam String otp,
-                                       HttpSession session,
-                                       HttpServletRequest request,
-                                       HttpServletResponse response) {
+                                       HttpServletRequest request) {
         log.info("API OTP verification for: {}", phoneNumber);
-        Optional<User> user = otpService.verifyOTP(phoneNumber, otp);
+        Optional<User> user;
+        try {
+            user = otpService.verifyOTP(phoneNumber, otp, clientIp(request));
+        } catch (RateLimitExceededException e) {
+            return tooManyRequests(e);
+        }
 
         if (user.isPresent()) {
             User loggedInUser = user.get();
@@ -55,36 +60,40 @@ public class AuthApiController {
                 return ResponseEntity.status(403).body(Map.of("error", "Account blocked"));
             }
 
-            // Session Logic
-            session.setAttribute("loggedInUser", loggedInUser);
-            session.setAttribute("userId", loggedInUser.getId());
-            session.setAttribute("userRole", loggedInUser.getRole());
-
-            // Security Context
-            String roleName = "ROLE_" + loggedInUser.getRole().name();
-            var authorities = java.util.List.of(new SimpleGrantedAuthority(roleName));
-            UsernamePasswordAuthenticationToken auth =
-                    new UsernamePasswordAuthenticationToken(loggedInUser.getPhoneNumber(), null, authorities);
-            SecurityContextHolder.getContext().setAuthentication(auth);
-            
-            HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
-            repo.saveContext(SecurityContextHolder.getContext(), request, response);
-
-            return ResponseEntity.ok(loggedInUser);
+            // No server-side session: the client keeps the token pair
+            return ResponseEntity.ok(refreshTokenService.issue(loggedInUser));
         } else {
             return ResponseEntity.status(401).body(Map.of("error", "Invalid OTP"));
         }
     }
 
+    /**
+     * Exchange a refresh token for a new access token and refresh token
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> payload) {
+        String refreshToken = payload.get("refreshToken");
+        if (refreshToken == null) {
+            return ResponseEntity.status(401).body(Map.of("error", "Refresh token required"));
+        }
+        try {
+            return ResponseEntity.ok(refreshTokenService.refresh(refreshToken));
+        } catch (Exception e) {
+            return ResponseEntity.status(401).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody UserRegistrationDTO dto) {
+    public ResponseEntity<?> register(@RequestBody UserRegistrationDTO dto, HttpServletRequest request) {
         try {
             if (userService.getUserByPhoneNumber(dto.getPhoneNumber()).isPresent()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "User already exists"));
             }
             User user = userService.registerUser(dto);
-            otpService.generateOTP(user.getPhoneNumber());
+            otpService.generateOTP(user.getPhoneNumber(), clientIp(request));
             return ResponseEntity.ok(Map.of("message", "Registered successfully. Please verify OTP.", "user", user));
+        } catch (RateLimitExceededException e) {
+            return tooManyRequests(e);
         } catch (Exception e) {
             log.error("Registration failed", e);
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -92,17 +101,35 @@ public class AuthApiController {
     }
     
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        if (user != null) {
-            return ResponseEntity.ok(user);
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal AuthenticatedUser caller) {
+        if (caller != null) {
+            Optional<User> user = userService.getUserById(caller.getId());
+            if (user.isPresent()) {
+                return ResponseEntity.ok(user.get());
+            }
         }
         return ResponseEntity.status(401).build();
     }
     
     @PostMapping("/logout")
-    public ResponseEntity<?> logout(HttpSession session) {
-        session.invalidate();
+    public ResponseEntity<?> logout(@RequestBody(required = false) Map<String, String> payload) {
+        if (payload != null && payload.get("refreshToken") != null) {
+            refreshTokenService.revoke(payload.get("refreshToken"));
+        }
         return ResponseEntity.ok(Map.of("message", "Logged out"));
     }
+
+    /**
+     * Address the rate limits are keyed on. With server.forward-headers-strategy=native Tomcat has already
+     * replaced the peer address with the client from X-Forwarded-For when the peer is a trusted proxy.
+     */
+    private String clientIp(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+
+    private ResponseEntity<?> tooManyRequests(RateLimitExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("error", e.getMessage()));
+    }
 }
@@ -1,14 +1,15 @@
 package com.farming.rental.controller.api;
 
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.entity.Booking;
 import com.farming.rental.entity.Equipment;
 import com.farming.rental.entity.User;
 import com.farming.rental.service.BookingService;
 import com.farming.rental.service.EquipmentService;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
@@ -25,17 +26,16 @@ public class FarmerApiController {
     private final BookingService bookingService;
     private final EquipmentService equipmentService;
 
-    private boolean isFarmer(HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        return user != null && user.getRole() == User.UserRole.FARMER;
+    private boolean isFarmer(AuthenticatedUser user) {
+        return user != null && user.hasRole(User.UserRole.FARMER);
     }
 
     @PostMapping("/booking")
-    public ResponseEntity<?> createBooking(@RequestBody Map<String, Object> payload, HttpSession session) {
-        if (!isFarmer(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> createBooking(@RequestBody Map<String, Object> payload, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isFarmer(user)) return ResponseEntity.status(403).build();
 
         try {
-            User farmer = (User) session.getAttribute("loggedInUser");
+            User farmer = user.toReference();
             String equipmentId = (String) payload.get("equipmentId");
             String startDateStr = (String) payload.get("startDate");
             String endDateStr = (String) payload.get("endDate");
@@ -108,9 +108,9 @@ public class FarmerApiController {
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<?> getDashboardStats(HttpSession session) {
-        if (!isFarmer(session)) return ResponseEntity.status(403).build();
-        User farmer = (User) session.getAttribute("loggedInUser");
+    public ResponseEntity<?> getDashboardStats(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isFarmer(user)) return ResponseEntity.status(403).build();
+        User farmer = user.toReference();
         List<Booking> bookings = bookingService.getFarmerBookings(farmer);
         
         long activeBookings = bookings.stream()
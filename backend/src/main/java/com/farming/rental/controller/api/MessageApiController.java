@@ -1,17 +1,18 @@
 package com.farming.rental.controller.api;
 
-import com.farming.rental.entity.Booking;
-import com.farming.rental.entity.Message;
+import com.farming.rental.dto.AuthenticatedUser;
+import com.farming.rental.dto.BookingParticipants;
 import com.farming.rental.entity.User;
-import com.farming.rental.repository.BookingRepository;
-import com.farming.rental.repository.MessageRepository;
-import jakarta.servlet.http.HttpSession;
+import com.farming.rental.service.BookingService;
+import com.farming.rental.service.ChatPushService;
+import com.farming.rental.service.JwtService;
+import com.farming.rental.service.MessageService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,52 +20,91 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class MessageApiController {
 
-    private final MessageRepository messageRepository;
-    private final BookingRepository bookingRepository;
+    private final MessageService messageService;
+    private final BookingService bookingService;
+    private final ChatPushService chatPushService;
+    private final JwtService jwtService;
 
-    @GetMapping("/{bookingId}")
-    public ResponseEntity<?> getMessages(@PathVariable String bookingId, HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
+    /**
+     * Short-lived ticket for opening the message stream, which EventSource can not send a token header to
+     */
+    @PostMapping("/stream-ticket")
+    public ResponseEntity<?> streamTicket(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(Map.of(
+                "ticket", jwtService.createStreamTicket(user),
+                "expiresIn", jwtService.getStreamTicketTtlSeconds()
+        ));
+    }
+
+    /**
+     * Server-Sent Events stream of new messages in any of the user's chats; opened with a stream ticket
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamMessages(@AuthenticationPrincipal AuthenticatedUser user) {
         if (user == null) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(chatPushService.subscribe(user.getId()));
+    }
 
-        Booking booking = bookingRepository.findById(bookingId).orElse(null);
-        if (booking == null) return ResponseEntity.notFound().build();
+    /**
+     * Unread message counts of the logged-in user, in total and per booking
+     */
+    @GetMapping("/unread")
+    public ResponseEntity<?> getUnreadCounts(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(messageService.getUnreadCounts(user.getId()));
+    }
+
+    /**
+     * Messages of a booking; with since (a message id) only the newer ones
+     */
+    @GetMapping("/{bookingId}")
+    public ResponseEntity<?> getMessages(@PathVariable String bookingId,
+                                         @RequestParam(required = false) String since,
+                                         @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).build();
 
         // Security check: only farmer or owner of the equipment can see messages
-        boolean isFarmer = booking.getFarmer().getId().equals(user.getId());
-        boolean isOwner = booking.getEquipment().getOwner().getId().equals(user.getId());
+        BookingParticipants participants = bookingService.getBookingParticipants(bookingId);
+        if (participants == null) return ResponseEntity.notFound().build();
+        if (!participants.includes(user.getId())) return ResponseEntity.status(403).build();
+
+        try {
+            return ResponseEntity.ok(messageService.getMessages(bookingId, since));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-        if (!isFarmer && !isOwner) return ResponseEntity.status(403).build();
+    /**
+     * Mark all messages of a booking received by the logged-in user as read
+     */
+    @PostMapping("/{bookingId}/read")
+    public ResponseEntity<?> markRead(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (user == null) return ResponseEntity.status(401).build();
 
-        return ResponseEntity.ok(messageRepository.findByBookingIdOrderByCreatedAtAsc(bookingId));
+        long marked = messageService.markRead(bookingId, user.toReference());
+        return ResponseEntity.ok(Map.of(
+                "marked", marked,
+                "unread", messageService.getUnreadCounts(user.getId()).getTotal()
+        ));
     }
 
     @PostMapping
-    public ResponseEntity<?> sendMessage(@RequestBody Map<String, String> payload, HttpSession session) {
-        User sender = (User) session.getAttribute("loggedInUser");
+    public ResponseEntity<?> sendMessage(@RequestBody Map<String, String> payload, @AuthenticationPrincipal AuthenticatedUser sender) {
         if (sender == null) return ResponseEntity.status(401).build();
 
         String bookingId = payload.get("bookingId");
         String content = payload.get("content");
 
-        Booking booking = bookingRepository.findById(bookingId).orElse(null);
-        if (booking == null) return ResponseEntity.notFound().build();
-
-        boolean isFarmer = booking.getFarmer().getId().equals(sender.getId());
-        boolean isOwner = booking.getEquipment().getOwner().getId().equals(sender.getId());
-
-        if (!isFarmer && !isOwner) return ResponseEntity.status(403).build();
-
-        User receiver = isFarmer ? booking.getEquipment().getOwner() : booking.getFarmer();
+        BookingParticipants participants = bookingService.getBookingParticipants(bookingId);
+        if (participants == null) return ResponseEntity.notFound().build();
+        if (!participants.includes(sender.getId())) return ResponseEntity.status(403).build();
 
-        Message message = new Message();
-        message.setBookingId(bookingId);
-        message.setSender(sender);
-        message.setReceiver(receiver);
-        message.setContent(content);
-        message.setCreatedAt(LocalDateTime.now());
-        message.setIsRead(false);
+        // Only the id is needed to reference the receiver
+        User receiver = new User();
+        receiver.setId(participants.peerOf(sender.getId()));
 
-        return ResponseEntity.ok(messageRepository.save(message));
+        return ResponseEntity.ok(messageService.sendMessage(bookingId, sender.toReference(), receiver, content));
     }
 }
@@ -1,22 +1,25 @@
 package com.farming.rental.controller.api;
 
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.entity.Booking;
 import com.farming.rental.entity.Equipment;
 import com.farming.rental.entity.User;
 import com.farming.rental.service.BookingService;
 import com.farming.rental.service.EquipmentService;
-import jakarta.servlet.http.HttpSession;
+import com.farming.rental.service.ImageStorageService;
+import com.farming.rental.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +32,20 @@ public class OwnerApiController {
 
     private final EquipmentService equipmentService;
     private final BookingService bookingService;
-    private static final String UPLOAD_DIR = "uploads/equipment/";
+    private final UserService userService;
+    private final ImageStorageService imageStorageService;
+    private static final int DASHBOARD_BOOKINGS = 50;
+    private static final int MAX_PAGE_SIZE = 100;
 
-    private boolean isOwner(HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        return user != null && user.getRole() == User.UserRole.OWNER;
+    private boolean isOwner(AuthenticatedUser user) {
+        return user != null && user.hasRole(User.UserRole.OWNER);
+    }
+
+    /**
+     * Response for a booking status change
+     */
+    private Map<String, Object> statusOf(Booking booking) {
+        return Map.of("id", booking.getId(), "status", booking.getStatus());
     }
 
     @PostMapping("/equipment")
@@ -49,11 +61,13 @@ public class OwnerApiController {
                                           @RequestParam String availabilityFrom,
                                           @RequestParam String availabilityTo,
                                           @RequestParam(required = false) MultipartFile image,
-                                          HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+                                          @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
 
         try {
-            User owner = (User) session.getAttribute("loggedInUser");
+            // The full profile is needed for the owner summary stored with the equipment
+            User owner = userService.getUserById(user.getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
             Equipment equipment = new Equipment();
             equipment.setName(name);
             equipment.setCategory(category);
@@ -72,11 +86,7 @@ public class OwnerApiController {
             equipment.setOwner(owner);
 
             if (image != null && !image.isEmpty()) {
-                String fileName = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                Path uploadPath = Paths.get(UPLOAD_DIR);
-                Files.createDirectories(uploadPath);
-                Files.write(uploadPath.resolve(fileName), image.getBytes());
-                equipment.setImageUrl("/images/uploads/" + fileName);
+                equipment.setImageUrl(imageStorageService.store(image));
             }
 
             Equipment saved = equipmentService.addEquipment(equipment);
@@ -100,11 +110,11 @@ public class OwnerApiController {
                                              @RequestParam String availabilityFrom,
                                              @RequestParam String availabilityTo,
                                              @RequestParam(required = false) MultipartFile image,
-                                             HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+                                             @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
 
         try {
-            User owner = (User) session.getAttribute("loggedInUser");
+            User owner = user.toReference();
             Equipment equipment = equipmentService.getEquipmentById(equipmentId)
                     .orElseThrow(() -> new RuntimeException("Equipment not found"));
 
@@ -128,11 +138,7 @@ public class OwnerApiController {
             equipment.setAvailabilityTo(LocalDate.parse(availabilityTo));
 
             if (image != null && !image.isEmpty()) {
-                String fileName = System.currentTimeMillis() + "_" + image.getOriginalFilename();
-                Path uploadPath = Paths.get(UPLOAD_DIR);
-                Files.createDirectories(uploadPath);
-                Files.write(uploadPath.resolve(fileName), image.getBytes());
-                equipment.setImageUrl("/images/uploads/" + fileName);
+                equipment.setImageUrl(imageStorageService.store(image));
             }
 
             Equipment updated = equipmentService.updateEquipment(equipment);
@@ -143,11 +149,11 @@ public class OwnerApiController {
     }
 
     @DeleteMapping("/equipment/{equipmentId}")
-    public ResponseEntity<?> deleteEquipment(@PathVariable String equipmentId, HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> deleteEquipment(@PathVariable String equipmentId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
 
         try {
-            User owner = (User) session.getAttribute("loggedInUser");
+            User owner = user.toReference();
             Equipment equipment = equipmentService.getEquipmentById(equipmentId)
                     .orElseThrow(() -> new RuntimeException("Equipment not found"));
 
@@ -163,66 +169,84 @@ public class OwnerApiController {
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<?> getDashboardStats(HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> getDashboardStats(@AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
 
-        User owner = (User) session.getAttribute("loggedInUser");
+        User owner = user.toReference();
         List<Equipment> equipment = equipmentService.getOwnerEquipment(owner);
-        List<Booking> bookings = bookingService.getOwnerBookings(owner);
-
-        // Calculate total earnings
-        BigDecimal totalEarnings = bookings.stream()
-            .filter(b -> b.getStatus() == Booking.BookingStatus.COMPLETED 
-                    || b.getStatus() == Booking.BookingStatus.CONFIRMED)
-            .map(Booking::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Page<Booking> bookings = bookingService.getOwnerBookings(owner, null, bookingPage(0, DASHBOARD_BOOKINGS));
 
         Map<String, Object> stats = Map.of(
-            "totalEarnings", totalEarnings,
+            "totalEarnings", bookingService.getOwnerEarnings(owner),
             "equipmentCount", equipment.size(),
-            "bookings", bookings,
+            "bookings", bookings.getContent(),
+            "totalBookings", bookings.getTotalElements(),
             "equipment", equipment
         );
 
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/bookings")
+    public ResponseEntity<?> getBookings(@RequestParam(required = false) Booking.BookingStatus status,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size,
+                                         @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
+
+        User owner = user.toReference();
+        Page<Booking> bookings = bookingService.getOwnerBookings(owner, status, bookingPage(page, size));
+
+        return ResponseEntity.ok(Map.of(
+            "bookings", bookings.getContent(),
+            "page", bookings.getNumber(),
+            "size", bookings.getSize(),
+            "totalElements", bookings.getTotalElements(),
+            "totalPages", bookings.getTotalPages()
+        ));
+    }
+
+    private Pageable bookingPage(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE),
+            Sort.by(Sort.Direction.DESC, "bookingDate", "id"));
+    }
+
     @PostMapping("/bookings/{bookingId}/approve")
-    public ResponseEntity<?> approveBooking(@PathVariable String bookingId, HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> approveBooking(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
         try {
-            return ResponseEntity.ok(bookingService.approveBooking(bookingId));
+            return ResponseEntity.ok(statusOf(bookingService.approveBooking(bookingId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
     @PostMapping("/bookings/{bookingId}/reject")
-    public ResponseEntity<?> rejectBooking(@PathVariable String bookingId, HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> rejectBooking(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
         try {
-            return ResponseEntity.ok(bookingService.rejectBooking(bookingId));
+            return ResponseEntity.ok(statusOf(bookingService.rejectBooking(bookingId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
     @PostMapping("/bookings/{bookingId}/complete")
-    public ResponseEntity<?> completeBooking(@PathVariable String bookingId, HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> completeBooking(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
         try {
-            return ResponseEntity.ok(bookingService.completeBooking(bookingId));
+            return ResponseEntity.ok(statusOf(bookingService.completeBooking(bookingId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
     @PostMapping("/bookings/{bookingId}/cancel")
-    public ResponseEntity<?> ownerCancelBooking(@PathVariable String bookingId, HttpSession session) {
-        if (!isOwner(session)) return ResponseEntity.status(403).build();
+    public ResponseEntity<?> ownerCancelBooking(@PathVariable String bookingId, @AuthenticationPrincipal AuthenticatedUser user) {
+        if (!isOwner(user)) return ResponseEntity.status(403).build();
         try {
             // Reusing reject logic or direct cancel
-            return ResponseEntity.ok(bookingService.rejectBooking(bookingId));
+            return ResponseEntity.ok(statusOf(bookingService.rejectBooking(bookingId)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
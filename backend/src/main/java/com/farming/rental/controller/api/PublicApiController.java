@@ -1,12 +1,17 @@
 package com.farming.rental.controller.api;
 
 import com.farming.rental.entity.Equipment;
+import com.farming.rental.service.BookingService;
 import com.farming.rental.service.EquipmentService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/public/equipment")
@@ -14,6 +19,7 @@ import java.util.List;
 public class PublicApiController {
 
     private final EquipmentService equipmentService;
+    private final BookingService bookingService;
 
     @GetMapping
     public ResponseEntity<List<Equipment>> getAllEquipment(
@@ -31,10 +37,43 @@ public class PublicApiController {
         return ResponseEntity.ok(equipmentService.getAvailableEquipment());
     }
 
+    @GetMapping("/nearby")
+    public ResponseEntity<?> searchNearby(@RequestParam double lat,
+                                          @RequestParam double lng,
+                                          @RequestParam(defaultValue = "50") double radiusKm,
+                                          @RequestParam(required = false) String category,
+                                          @RequestParam(required = false) BigDecimal minPrice,
+                                          @RequestParam(required = false) BigDecimal maxPrice,
+                                          @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(equipmentService.searchNearby(lat, lng, radiusKm, category, minPrice, maxPrice, limit));
+    }
+
+    @GetMapping("/catalog")
+    public ResponseEntity<?> getCatalog(@RequestParam(required = false) String category,
+                                        @RequestParam(defaultValue = "NEWEST") EquipmentService.CatalogSort sort,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "20") int size,
+                                        @RequestParam(defaultValue = "true") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(equipmentService.getCatalogPage(category, sort, cursor, size, includeTotal));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Equipment> getEquipmentById(@PathVariable String id) {
-        return equipmentService.getEquipmentById(id)
+        return equipmentService.getPublicEquipmentById(id)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @GetMapping("/{id}/availability")
+    public ResponseEntity<?> getAvailability(@PathVariable String id,
+                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(Map.of(
+                "date", date,
+                "freeHours", bookingService.getFreeHours(id, date)
+        ));
+    }
 }
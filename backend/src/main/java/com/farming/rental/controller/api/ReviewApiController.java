@@ -1,15 +1,15 @@
 package com.farming.rental.controller.api;
 
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.entity.Equipment;
 import com.farming.rental.entity.Review;
 import com.farming.rental.entity.User;
 import com.farming.rental.service.ReviewService;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -19,15 +19,27 @@ public class ReviewApiController {
 
     private final ReviewService reviewService;
 
+    /**
+     * A page of an equipment's reviews with the rating summary (average, count, histogram)
+     */
     @GetMapping("/public/equipment/{equipmentId}/reviews")
-    public ResponseEntity<List<Review>> getReviews(@PathVariable String equipmentId) {
-        return ResponseEntity.ok(reviewService.getEquipmentReviews(equipmentId));
+    public ResponseEntity<?> getReviews(@PathVariable String equipmentId,
+                                        @RequestParam(defaultValue = "NEWEST") ReviewService.ReviewSort sort,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "summary", reviewService.getRatingSummary(equipmentId),
+                "reviews", reviewService.getReviewPage(equipmentId, sort, cursor, size)
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PostMapping("/farmer/reviews")
-    public ResponseEntity<?> addReview(@RequestBody Map<String, Object> payload, HttpSession session) {
-        User farmer = (User) session.getAttribute("loggedInUser");
-        if (farmer == null || farmer.getRole() != User.UserRole.FARMER) {
+    public ResponseEntity<?> addReview(@RequestBody Map<String, Object> payload, @AuthenticationPrincipal AuthenticatedUser farmer) {
+        if (farmer == null || !farmer.hasRole(User.UserRole.FARMER)) {
             return ResponseEntity.status(403).body(Map.of("error", "Only farmers can leave reviews"));
         }
 
@@ -38,7 +50,7 @@ public class ReviewApiController {
             equipment.setId((String) payload.get("equipmentId"));
             
             review.setEquipment(equipment);
-            review.setFarmer(farmer);
+            review.setFarmer(farmer.toReference());
             review.setRating((Integer) payload.get("rating"));
             review.setComment((String) payload.get("comment"));
 
@@ -49,9 +61,8 @@ public class ReviewApiController {
     }
 
     @DeleteMapping("/admin/reviews/{reviewId}")
-    public ResponseEntity<?> deleteReview(@PathVariable String reviewId, HttpSession session) {
-        User admin = (User) session.getAttribute("loggedInUser");
-        if (admin == null || admin.getRole() != User.UserRole.ADMIN) {
+    public ResponseEntity<?> deleteReview(@PathVariable String reviewId, @AuthenticationPrincipal AuthenticatedUser admin) {
+        if (admin == null || !admin.hasRole(User.UserRole.ADMIN)) {
             return ResponseEntity.status(403).build();
         }
 
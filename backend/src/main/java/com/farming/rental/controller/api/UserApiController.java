@@ -1,11 +1,12 @@
 package com.farming.rental.controller.api;
 
+import com.farming.rental.dto.AuthenticatedUser;
 import com.farming.rental.entity.User;
 import com.farming.rental.service.UserService;
-import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -19,32 +20,34 @@ public class UserApiController {
     private final UserService userService;
 
     @GetMapping("/profile")
-    public ResponseEntity<User> getProfile(HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        if (user == null) {
+    public ResponseEntity<User> getProfile(@AuthenticationPrincipal AuthenticatedUser caller) {
+        if (caller == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(user);
+        return ResponseEntity.of(userService.getUserById(caller.getId()));
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestBody Map<String, String> payload, HttpSession session) {
-        User user = (User) session.getAttribute("loggedInUser");
-        if (user == null) {
+    public ResponseEntity<?> updateProfile(@RequestBody Map<String, String> payload,
+                                           @AuthenticationPrincipal AuthenticatedUser caller) {
+        if (caller == null) {
             return ResponseEntity.status(401).build();
         }
 
         try {
+            User user = userService.getUserById(caller.getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
             user.setFullName(payload.get("fullName"));
             user.setEmail(payload.get("email"));
             user.setAddress(payload.get("address"));
             user.setCity(payload.get("city"));
             user.setState(payload.get("state"));
             user.setPincode(payload.get("pincode"));
+            if (payload.containsKey("phoneVisible")) {
+                user.setPhoneVisible(Boolean.parseBoolean(payload.get("phoneVisible")));
+            }
 
             User updated = userService.updateUserProfile(user);
-            session.setAttribute("loggedInUser", updated);
-            
             return ResponseEntity.ok(updated);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
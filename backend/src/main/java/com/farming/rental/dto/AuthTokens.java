@@ -0,0 +1,19 @@
+package com.farming.rental.dto;
+
+import com.farming.rental.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO returned on login and token refresh
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthTokens {
+    private User user;
+    private String accessToken;
+    private long expiresIn; // Seconds until the access token expires
+    private String refreshToken;
+}
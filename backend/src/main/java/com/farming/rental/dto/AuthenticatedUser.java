@@ -0,0 +1,34 @@
+package com.farming.rental.dto;
+
+import com.farming.rental.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the caller of a request, taken from the claims of their access token
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthenticatedUser {
+    private String id;
+    private User.UserRole role;
+    private String phoneNumber;
+
+    public boolean hasRole(User.UserRole expected) {
+        return role == expected;
+    }
+
+    /**
+     * A User carrying only the id, role and phone number. Enough to reference
+     * the user from other documents or query by it, without loading the profile.
+     */
+    public User toReference() {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        user.setPhoneNumber(phoneNumber);
+        return user;
+    }
+}
@@ -0,0 +1,27 @@
+package com.farming.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO holding the two users allowed to take part in a booking's chat
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingParticipants {
+    private String farmerId;
+    private String ownerId;
+
+    public boolean includes(String userId) {
+        return userId.equals(farmerId) || userId.equals(ownerId);
+    }
+
+    /**
+     * The other participant of the conversation
+     */
+    public String peerOf(String userId) {
+        return userId.equals(farmerId) ? ownerId : farmerId;
+    }
+}
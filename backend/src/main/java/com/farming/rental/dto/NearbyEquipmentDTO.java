@@ -0,0 +1,17 @@
+package com.farming.rental.dto;
+
+import com.farming.rental.entity.Equipment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a geo search result with its distance from the search point
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyEquipmentDTO {
+    private Equipment equipment;
+    private double distanceKm;
+}
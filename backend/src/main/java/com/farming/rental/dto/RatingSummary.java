@@ -0,0 +1,30 @@
+package com.farming.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+/**
+ * DTO for the review aggregates of one equipment: rating sum, review count and reviews per star
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummary {
+    private String equipmentId;
+    private long sum;
+    private long count;
+    private Map<String, Long> histogram;
+
+    /**
+     * Average rating to two decimals, rounded half-even like MongoDB's $round
+     */
+    public BigDecimal getAverage() {
+        return count == 0 ? BigDecimal.ZERO
+            : BigDecimal.valueOf(sum).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_EVEN);
+    }
+}
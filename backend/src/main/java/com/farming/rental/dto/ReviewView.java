@@ -0,0 +1,22 @@
+package com.farming.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a review in a public listing: the review itself plus the reviewer's id and name
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewView {
+    private String id;
+    private Integer rating;
+    private String comment;
+    private LocalDateTime createdAt;
+    private String farmerId;
+    private String farmerName;
+}
@@ -0,0 +1,21 @@
+package com.farming.rental.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for an outbound SMS, with the number of delivery attempts made so far
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsMessage {
+    private String phoneNumber;
+    private String text;
+    private int attempts;
+
+    public SmsMessage(String phoneNumber, String text) {
+        this(phoneNumber, text, 0);
+    }
+}
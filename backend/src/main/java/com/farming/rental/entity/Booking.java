@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -21,6 +23,11 @@ import java.time.temporal.ChronoUnit;
  * Links Farmers with Equipment
  */
 @Document(collection = "bookings")
+@CompoundIndexes({
+    @CompoundIndex(name = "equipment_status_idx", def = "{ 'equipment_id': 1, 'status': 1, 'booking_date': -1 }"),
+    // Review eligibility: a farmer's bookings of one equipment in a given status
+    @CompoundIndex(name = "farmer_equipment_status_idx", def = "{ 'farmer_id': 1, 'equipment_id': 1, 'status': 1 }")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -76,6 +83,9 @@ public class Booking {
 
     private String notes;
 
+    @Field("is_reviewed")
+    private Boolean isReviewed = false; // Set once the farmer has reviewed this rental
+
     @CreatedDate
     @Field("created_at")
     private LocalDateTime createdAt;
@@ -89,7 +99,19 @@ public class Booking {
         PENDING,      // Waiting for owner approval
         CONFIRMED,    // Approved by owner
         CANCELLED,    // Cancelled by farmer or owner
-        COMPLETED     // Rental period completed
+        COMPLETED;    // Rental period completed
+
+        /**
+         * Whether a booking in this status may move to the given one.
+         * Cancelled and completed bookings are final.
+         */
+        public boolean canTransitionTo(BookingStatus next) {
+            return switch (this) {
+                case PENDING -> next == CONFIRMED || next == CANCELLED;
+                case CONFIRMED -> next == CANCELLED || next == COMPLETED;
+                case CANCELLED, COMPLETED -> false;
+            };
+        }
     }
 
     /**
@@ -118,7 +140,6 @@ public class Booking {
      * Check if booking can be cancelled
      */
     public boolean canBeCancelled() {
-        return (status == BookingStatus.PENDING || status == BookingStatus.CONFIRMED) &&
-               startDate.isAfter(LocalDate.now());
+        return status.canTransitionTo(BookingStatus.CANCELLED) && startDate.isAfter(LocalDate.now());
     }
 }
@@ -6,20 +6,36 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Equipment Entity - Represents farm equipment available for rental
  * Linked to Equipment Owner (User with OWNER role)
  */
 @Document(collection = "equipment")
+@CompoundIndexes({
+    // Public catalog keyset pagination: one index per sort order, with and without category
+    @CompoundIndex(name = "catalog_newest_idx", def = "{ 'is_approved': 1, 'is_available': 1, '_id': -1 }"),
+    @CompoundIndex(name = "catalog_price_idx", def = "{ 'is_approved': 1, 'is_available': 1, 'price_per_day': 1, '_id': 1 }"),
+    @CompoundIndex(name = "catalog_rating_idx", def = "{ 'is_approved': 1, 'is_available': 1, 'rating': -1, '_id': -1 }"),
+    @CompoundIndex(name = "catalog_category_newest_idx", def = "{ 'category': 1, 'is_approved': 1, 'is_available': 1, '_id': -1 }"),
+    @CompoundIndex(name = "catalog_category_price_idx", def = "{ 'category': 1, 'is_approved': 1, 'is_available': 1, 'price_per_day': 1, '_id': 1 }"),
+    @CompoundIndex(name = "catalog_category_rating_idx", def = "{ 'category': 1, 'is_approved': 1, 'is_available': 1, 'rating': -1, '_id': -1 }"),
+    // Admin dashboard: newest equipment awaiting approval
+    @CompoundIndex(name = "pending_approval_idx", def = "{ 'is_approved': 1, '_id': -1 }")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,6 +48,9 @@ public class Equipment {
     @Field("owner_id")
     private User owner; // Reference to Equipment Owner (User)
 
+    @Field("owner_summary")
+    private OwnerSummary ownerSummary; // Denormalized owner details for public reads
+
     @Indexed
     private String name;
 
@@ -40,13 +59,13 @@ public class Equipment {
 
     private String description;
 
-    @Field("price_per_hour")
+    @Field(value = "price_per_hour", targetType = FieldType.DECIMAL128)
     private BigDecimal pricePerHour;
 
-    @Field("price_per_day")
+    @Field(value = "price_per_day", targetType = FieldType.DECIMAL128)
     private BigDecimal pricePerDay;
 
-    @Field("price_per_week")
+    @Field(value = "price_per_week", targetType = FieldType.DECIMAL128)
     private BigDecimal pricePerWeek;
 
     @org.springframework.data.mongodb.core.index.GeoSpatialIndexed(type = org.springframework.data.mongodb.core.index.GeoSpatialIndexType.GEO_2DSPHERE)
@@ -55,6 +74,12 @@ public class Equipment {
     @Field("image_url")
     private String imageUrl; // Path to equipment image
 
+    @Field("thumbnail_url")
+    private String thumbnailUrl; // 320px wide variant for listings
+
+    @Field("medium_url")
+    private String mediumUrl; // 800px wide variant for the details page
+
     @Indexed
     @Field("is_available")
     private Boolean isAvailable = true;
@@ -67,8 +92,19 @@ public class Equipment {
 
     private String location; // Equipment location
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal rating = BigDecimal.ZERO; // Average rating
 
+    // Running review aggregates, maintained on review writes so rating needs no read-time work
+    @Field("rating_sum")
+    private Long ratingSum = 0L;
+
+    @Field("rating_count")
+    private Long ratingCount = 0L;
+
+    @Field("rating_histogram")
+    private Map<String, Long> ratingHistogram = new HashMap<>(); // Review count per star, keyed "1" to "5"
+
     @Field("total_bookings")
     private Integer totalBookings = 0;
 
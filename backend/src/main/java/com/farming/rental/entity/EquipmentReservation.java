@@ -0,0 +1,77 @@
+package com.farming.rental.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Equipment Reservation Ledger - One document per equipment holding its reserved slots
+ * Reservations are appended with a conditional update so overlapping slots are rejected atomically
+ */
+@Document(collection = "equipment_reservations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EquipmentReservation {
+
+    @Id
+    private String id; // Same as the equipment id
+
+    private List<Slot> slots = new ArrayList<>();
+
+    /**
+     * Reserved range of a single booking, in hours since the epoch (inclusive)
+     * Hourly, daily and weekly bookings share this unit so they can be checked against each other
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Slot {
+
+        @Field("booking_id")
+        private String bookingId;
+
+        @Field("start_hour")
+        private long start;
+
+        @Field("end_hour")
+        private long end;
+
+        /**
+         * Build the slot occupied by a booking
+         */
+        public static Slot forBooking(Booking booking) {
+            return of(booking.getId(), booking.getStartDate(), booking.getEndDate(),
+                booking.getStartTime(), booking.getEndTime());
+        }
+
+        /**
+         * Build a slot. Hourly bookings occupy every hour they touch; daily and weekly bookings whole days.
+         */
+        public static Slot of(String bookingId, LocalDate startDate, LocalDate endDate,
+                              LocalDateTime startTime, LocalDateTime endTime) {
+            if (startTime != null && endTime != null) {
+                long start = epochHour(startTime);
+                long end = epochHour(endTime) - 1;
+                if (endTime.getMinute() > 0 || endTime.getSecond() > 0) {
+                    end++; // A partial hour still blocks the whole hour
+                }
+                return new Slot(bookingId, start, Math.max(start, end));
+            }
+            LocalDate lastDay = endDate != null ? endDate : startDate;
+            return new Slot(bookingId, startDate.toEpochDay() * 24, lastDay.toEpochDay() * 24 + 23);
+        }
+
+        private static long epochHour(LocalDateTime time) {
+            return time.toLocalDate().toEpochDay() * 24 + time.getHour();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.farming.rental.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message Bucket Entity - Up to a fixed number of chat messages of one booking in a single document
+ * Messages are appended with $push, so a conversation is read from a handful of documents
+ */
+@Document(collection = "message_buckets")
+@CompoundIndex(name = "booking_first_idx", def = "{ 'booking_id': 1, 'first_at': 1 }")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageBucket {
+
+    @Id
+    private String id;
+
+    @Field("booking_id")
+    private String bookingId;
+
+    private int count;
+
+    @Field("first_at")
+    private LocalDateTime firstAt;
+
+    @Field("last_at")
+    private LocalDateTime lastAt;
+
+    private List<Entry> messages = new ArrayList<>();
+
+    /**
+     * A single message inside a bucket. Participants are plain user ids instead of DBRefs.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        @Field("message_id")
+        private String messageId;
+
+        @Field("sender_id")
+        private String senderId;
+
+        @Field("receiver_id")
+        private String receiverId;
+
+        private String content;
+
+        @Field("created_at")
+        private LocalDateTime createdAt;
+
+        @Field("is_read")
+        private Boolean isRead = false;
+
+        /**
+         * Build the entry stored for a message
+         */
+        public static Entry of(Message message) {
+            return new Entry(message.getId(), message.getSender().getId(), message.getReceiver().getId(),
+                message.getContent(), message.getCreatedAt(), message.getIsRead());
+        }
+    }
+}
@@ -38,9 +38,14 @@ public class OTPVerification {
     @Field("created_at")
     private LocalDateTime createdAt;
 
+    // Expired codes are removed by MongoDB
+    @Indexed(name = "otp_ttl_idx", expireAfter = "0s")
     @Field("expires_at")
     private LocalDateTime expiresAt; // OTP expiry time (usually 10 minutes)
 
+    @Field("attempts")
+    private Integer attempts = 0; // Verification attempts for the current code
+
     /**
      * Check if OTP is still valid
      */
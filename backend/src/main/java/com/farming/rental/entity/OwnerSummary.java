@@ -0,0 +1,38 @@
+package com.farming.rental.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Owner Summary - Read-optimized copy of the owner embedded in each equipment document
+ * Public catalog reads use it instead of resolving the owner DBRef
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerSummary {
+
+    private String id;
+
+    @Field("full_name")
+    private String fullName;
+
+    private String city;
+
+    @Field("phone_visible")
+    private Boolean phoneVisible = false;
+
+    @Field("phone_number")
+    private String phoneNumber; // Only set when the owner made it visible
+
+    /**
+     * Build the summary of an owner
+     */
+    public static OwnerSummary of(User owner) {
+        boolean visible = Boolean.TRUE.equals(owner.getPhoneVisible());
+        return new OwnerSummary(owner.getId(), owner.getFullName(), owner.getCity(), visible,
+            visible ? owner.getPhoneNumber() : null);
+    }
+}
@@ -0,0 +1,44 @@
+package com.farming.rental.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Platform Stats Entity - Materialized counters for the admin dashboard
+ * A single document kept up to date with $inc by the user, equipment and booking services
+ */
+@Document(collection = "platform_stats")
+@Data
+@NoArgsConstructor
+public class PlatformStats {
+
+    public static final String GLOBAL_ID = "global";
+
+    @Id
+    private String id = GLOBAL_ID;
+
+    @Field("total_users")
+    private long totalUsers;
+
+    @Field("total_equipment")
+    private long totalEquipment;
+
+    @Field("pending_equipment")
+    private long pendingEquipment; // Equipment awaiting admin approval
+
+    @Field("total_bookings")
+    private long totalBookings;
+
+    @Field(value = "total_revenue", targetType = FieldType.DECIMAL128)
+    private BigDecimal totalRevenue = BigDecimal.ZERO; // Confirmed and completed bookings
+
+    @Field("rebuilt_at")
+    private LocalDateTime rebuiltAt;
+}
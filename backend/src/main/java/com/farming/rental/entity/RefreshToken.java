@@ -0,0 +1,33 @@
+package com.farming.rental.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh Token Entity - An issued refresh token, stored by hash
+ * Each token is single use; expired tokens are removed by the TTL index
+ */
+@Document(collection = "refresh_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+    @Id
+    private String id; // SHA-256 of the token
+
+    @Field("user_id")
+    @Indexed
+    private String userId;
+
+    @Field("expires_at")
+    @Indexed(name = "refresh_token_ttl_idx", expireAfter = "0s")
+    private LocalDateTime expiresAt;
+}
@@ -5,6 +5,9 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -15,6 +18,11 @@ import java.time.LocalDateTime;
  * Review Entity - User reviews and ratings for equipment
  */
 @Document(collection = "reviews")
+@CompoundIndexes({
+    // Review listing of one equipment, newest first or by rating
+    @CompoundIndex(name = "equipment_newest_idx", def = "{ 'equipment_id': 1, '_id': -1 }"),
+    @CompoundIndex(name = "equipment_rating_idx", def = "{ 'equipment_id': 1, 'rating': -1, '_id': -1 }")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +39,11 @@ public class Review {
     @Field("farmer_id")
     private User farmer;
 
+    // One review per booking; sparse because older reviews have no booking
+    @Indexed(name = "booking_unique_idx", unique = true, sparse = true)
+    @Field("booking_id")
+    private String bookingId;
+
     private Integer rating; // 1-5 stars
 
     private String comment;
@@ -0,0 +1,41 @@
+package com.farming.rental.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+
+/**
+ * SMS Dead Letter Entity - An SMS that could not be delivered after all retries
+ * Kept for a week for inspection.
+ */
+@Document(collection = "sms_dead_letters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmsDeadLetter {
+
+    @Id
+    private String id;
+
+    @Field("phone_number")
+    private String phoneNumber;
+
+    @Field("text")
+    private String text;
+
+    @Field("attempts")
+    private Integer attempts;
+
+    @Field("error")
+    private String error;
+
+    @Indexed(name = "sms_dead_letter_ttl_idx", expireAfter = "7d")
+    @Field("failed_at")
+    private LocalDateTime failedAt;
+}
@@ -0,0 +1,28 @@
+package com.farming.rental.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unread Counter Entity - Number of unread chat messages of a user
+ * Incremented when a message is sent to the user and decremented when it is marked read
+ */
+@Document(collection = "unread_counters")
+@Data
+@NoArgsConstructor
+public class UnreadCounter {
+
+    @Id
+    private String id; // Same as the user id
+
+    private long total;
+
+    @Field("by_booking")
+    private Map<String, Long> byBooking = new HashMap<>();
+}
@@ -56,6 +56,9 @@ public class User {
     @Field("is_blocked")
     private Boolean isBlocked = false;
 
+    @Field("phone_visible")
+    private Boolean phoneVisible = false; // Show phone number on public equipment listings
+
     @CreatedDate
     @Field("created_at")
     private LocalDateTime createdAt;
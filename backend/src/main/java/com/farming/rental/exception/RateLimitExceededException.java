@@ -0,0 +1,19 @@
+package com.farming.rental.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a caller has made too many requests; carries the seconds to wait before retrying
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -2,12 +2,12 @@ package com.farming.rental.repository;
 
 import com.farming.rental.entity.Equipment;
 import com.farming.rental.entity.User;
-import org.springframework.data.geo.Point;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository for Equipment entity
@@ -16,11 +16,21 @@ import java.util.List;
 @Repository
 public interface EquipmentRepository extends MongoRepository<Equipment, String> {
     List<Equipment> findByOwner(User owner);
+
+    // Only the ids are projected, so the owner DBRef is never resolved
+    @Query(value = "{ 'owner' : ?0 }", fields = "{ '_id' : 1 }")
+    List<Equipment> findIdsByOwnerId(String ownerId);
+
     List<Equipment> findByCategory(String category);
+
+    // Public reads leave out the owner DBRef and rely on the embedded owner summary,
+    // so they never touch the users collection
+    @Query(value = "{ 'isAvailable' : ?0, 'isApproved' : true }", fields = "{ 'owner' : 0 }")
     List<Equipment> findByIsAvailableAndIsApprovedTrue(Boolean isAvailable);
     
-    List<Equipment> findByCoordinatesNear(Point point);
-    
-    @Query("{ 'category' : ?0, 'isApproved' : true, 'isAvailable' : true }")
+    @Query(value = "{ 'category' : ?0, 'isApproved' : true, 'isAvailable' : true }", fields = "{ 'owner' : 0 }")
     List<Equipment> findAvailableByCategory(String category);
+
+    @Query(value = "{ '_id' : ?0 }", fields = "{ 'owner' : 0 }")
+    Optional<Equipment> findPublicById(String id);
 }
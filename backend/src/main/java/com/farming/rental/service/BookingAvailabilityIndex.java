@@ -0,0 +1,188 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.EquipmentReservation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory availability index for booking conflict detection
+ * Keeps a 24-bit hour-slot bitmap per equipment per day, so hourly, daily and weekly
+ * bookings are checked against each other with bitwise operations.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookingAvailabilityIndex {
+
+    private static final int HOURS_PER_DAY = 24;
+
+    private final ReservationLedger reservationLedger;
+
+    private final Map<String, EquipmentSlots> slotsByEquipment = new ConcurrentHashMap<>();
+
+    /**
+     * Build the index from the persisted reservation ledger once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long startedAt = System.currentTimeMillis();
+        reservationLedger.backfillIfNeeded();
+
+        int count = 0;
+        Map<String, EquipmentSlots> rebuilt = new HashMap<>();
+        for (EquipmentReservation ledger : reservationLedger.loadAll()) {
+            rebuilt.put(ledger.getId(), EquipmentSlots.of(ledger.getSlots()));
+            count += ledger.getSlots().size();
+        }
+
+        slotsByEquipment.clear();
+        slotsByEquipment.putAll(rebuilt);
+        log.info("Booking availability index built: {} slots across {} equipment in {} ms",
+            count, rebuilt.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    /**
+     * Check whether any reserved slot overlaps the given hour range (inclusive)
+     */
+    public boolean hasConflict(String equipmentId, long startHour, long endHour) {
+        EquipmentSlots slots = slotsByEquipment.get(equipmentId);
+        return slots != null && slots.overlaps(startHour, endHour);
+    }
+
+    /**
+     * Get the hours (0-23) of a date that are not reserved
+     */
+    public List<Integer> getFreeHours(String equipmentId, LocalDate date) {
+        EquipmentSlots slots = slotsByEquipment.get(equipmentId);
+        long booked = slots != null ? slots.dayMask(date.toEpochDay()) : 0L;
+
+        List<Integer> free = new ArrayList<>();
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            if ((booked & (1L << hour)) == 0) {
+                free.add(hour);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Add or refresh a booking in the index. Cancelled bookings are removed.
+     */
+    public void update(Booking booking) {
+        if (booking.getId() == null || booking.getEquipment() == null || booking.getStartDate() == null) {
+            return;
+        }
+        String equipmentId = booking.getEquipment().getId();
+        if (booking.getStatus() == Booking.BookingStatus.CANCELLED) {
+            remove(equipmentId, booking.getId());
+            return;
+        }
+        EquipmentReservation.Slot slot = EquipmentReservation.Slot.forBooking(booking);
+        slotsByEquipment.computeIfAbsent(equipmentId, id -> new EquipmentSlots())
+            .put(slot.getBookingId(), slot.getStart(), slot.getEnd());
+    }
+
+    /**
+     * Replace everything indexed for an equipment with the given reserved slots
+     */
+    public void replace(String equipmentId, List<EquipmentReservation.Slot> slots) {
+        slotsByEquipment.put(equipmentId, EquipmentSlots.of(slots));
+    }
+
+    /**
+     * Remove a booking from the index
+     */
+    public void remove(String equipmentId, String bookingId) {
+        EquipmentSlots slots = slotsByEquipment.get(equipmentId);
+        if (slots != null) {
+            slots.remove(bookingId);
+        }
+    }
+
+    /**
+     * Hour-slot bitmap for a single equipment.
+     * Each day is one long with bit N set when hour N is reserved. The reserved range of
+     * every booking is kept too, so releasing a booking can rebuild the days it touched.
+     */
+    private static class EquipmentSlots {
+
+        private static final long FULL_DAY = (1L << HOURS_PER_DAY) - 1;
+
+        private final Map<String, long[]> byBooking = new HashMap<>();
+        private final Map<Long, Long> dayMasks = new HashMap<>();
+
+        static EquipmentSlots of(List<EquipmentReservation.Slot> slots) {
+            EquipmentSlots equipmentSlots = new EquipmentSlots();
+            for (EquipmentReservation.Slot slot : slots) {
+                equipmentSlots.put(slot.getBookingId(), slot.getStart(), slot.getEnd());
+            }
+            return equipmentSlots;
+        }
+
+        synchronized void put(String bookingId, long start, long end) {
+            remove(bookingId);
+            byBooking.put(bookingId, new long[]{start, end});
+            mark(start, end);
+        }
+
+        synchronized void remove(String bookingId) {
+            long[] range = byBooking.remove(bookingId);
+            if (range == null) {
+                return;
+            }
+            long firstDay = Math.floorDiv(range[0], HOURS_PER_DAY);
+            long lastDay = Math.floorDiv(range[1], HOURS_PER_DAY);
+            for (long day = firstDay; day <= lastDay; day++) {
+                dayMasks.remove(day);
+            }
+            // Re-mark whatever other bookings still hold on the cleared days
+            long from = firstDay * HOURS_PER_DAY;
+            long to = lastDay * HOURS_PER_DAY + HOURS_PER_DAY - 1;
+            for (long[] other : byBooking.values()) {
+                if (other[0] <= to && other[1] >= from) {
+                    mark(Math.max(other[0], from), Math.min(other[1], to));
+                }
+            }
+        }
+
+        synchronized boolean overlaps(long start, long end) {
+            for (long day = Math.floorDiv(start, HOURS_PER_DAY); day <= Math.floorDiv(end, HOURS_PER_DAY); day++) {
+                if ((dayMasks.getOrDefault(day, 0L) & maskOf(day, start, end)) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized long dayMask(long day) {
+            return dayMasks.getOrDefault(day, 0L);
+        }
+
+        private void mark(long start, long end) {
+            for (long day = Math.floorDiv(start, HOURS_PER_DAY); day <= Math.floorDiv(end, HOURS_PER_DAY); day++) {
+                dayMasks.merge(day, maskOf(day, start, end), (a, b) -> a | b);
+            }
+        }
+
+        /**
+         * Bits of the given day covered by the hour range
+         */
+        private static long maskOf(long day, long start, long end) {
+            long dayStart = day * HOURS_PER_DAY;
+            int from = (int) (Math.max(start, dayStart) - dayStart);
+            int to = (int) (Math.min(end, dayStart + HOURS_PER_DAY - 1) - dayStart);
+            return (FULL_DAY >>> (HOURS_PER_DAY - 1 - to + from)) << from;
+        }
+    }
+}
@@ -1,16 +1,45 @@
 package com.farming.rental.service;
 
+import com.farming.rental.config.CacheConfig;
+import com.farming.rental.dto.BookingParticipants;
 import com.farming.rental.entity.Booking;
 import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.EquipmentReservation;
 import com.farming.rental.entity.User;
 import com.farming.rental.repository.BookingRepository;
+import com.mongodb.DBRef;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.convert.UpdateMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.BasicUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Service for Booking management
@@ -23,29 +52,95 @@ public class BookingService {
 
     private final BookingRepository bookingRepository;
     private final EquipmentService equipmentService;
+    private final BookingAvailabilityIndex availabilityIndex;
+    private final ReservationLedger reservationLedger;
+    private final MongoTemplate mongoTemplate;
+    private final ReferenceBatchLoader referenceBatchLoader;
+    private final PlatformStatsService platformStatsService;
+
+    // Re-run every conflict check against Mongo and log any disagreement with the index
+    @Value("${booking.availability-index.verify:false}")
+    private boolean verifyAvailabilityIndex;
 
     /**
      * Create new booking
+     * The slot is reserved atomically in the reservation ledger before the booking is saved,
+     * so concurrent requests (on this or any other instance) cannot double-book the equipment.
      */
     public Booking createBooking(Booking booking) {
         log.info("Creating booking for farmer: {} equipment: {}", 
             booking.getFarmer().getId(), booking.getEquipment().getId());
         
-        // Check for conflicting bookings
-        List<Booking> conflicts = bookingRepository.findConflictingBookings(
-            booking.getEquipment().getId(),
-            booking.getStartDate(),
-            booking.getEndDate()
-        );
-        
-        if (!conflicts.isEmpty()) {
-            throw new RuntimeException("Equipment not available for selected dates");
+        String equipmentId = booking.getEquipment().getId();
+        booking.setId(new ObjectId().toHexString());
+        EquipmentReservation.Slot slot = EquipmentReservation.Slot.forBooking(booking);
+
+        Lock lock = reservationLedger.lockFor(equipmentId);
+        lock.lock();
+        try {
+            // Check for conflicting bookings. The local index may be stale if another
+            // instance released the slot, so refresh it from the ledger before rejecting.
+            if (hasConflict(equipmentId, slot)) {
+                refreshAvailability(equipmentId);
+                if (hasConflict(equipmentId, slot)) {
+                    throw new RuntimeException("Equipment not available for selected dates");
+                }
+            }
+
+            booking.setStatus(Booking.BookingStatus.PENDING);
+            booking.setBookingDate(LocalDate.now());
+
+            Optional<EquipmentReservation> ledger = reservationLedger.reserve(equipmentId, slot);
+            if (ledger.isEmpty()) {
+                refreshAvailability(equipmentId);
+                throw new RuntimeException("Equipment not available for selected dates");
+            }
+            availabilityIndex.replace(equipmentId, ledger.get().getSlots());
+
+            Booking saved;
+            try {
+                saved = bookingRepository.save(booking);
+            } catch (RuntimeException e) {
+                reservationLedger.release(equipmentId, booking.getId());
+                availabilityIndex.remove(equipmentId, booking.getId());
+                throw e;
+            }
+            platformStatsService.bookingCreated();
+            return saved;
+        } finally {
+            lock.unlock();
         }
-        
-        booking.setStatus(Booking.BookingStatus.PENDING);
-        booking.setBookingDate(LocalDate.now());
-        
-        return bookingRepository.save(booking);
+    }
+
+    /**
+     * Reload the indexed slots of an equipment from the reservation ledger
+     */
+    private void refreshAvailability(String equipmentId) {
+        reservationLedger.load(equipmentId)
+            .ifPresent(ledger -> availabilityIndex.replace(equipmentId, ledger.getSlots()));
+    }
+
+    /**
+     * Check for overlapping reservations using the in-memory index
+     */
+    private boolean hasConflict(String equipmentId, EquipmentReservation.Slot slot) {
+        boolean conflict = availabilityIndex.hasConflict(equipmentId, slot.getStart(), slot.getEnd());
+        if (verifyAvailabilityIndex) {
+            boolean mongoConflict = reservationLedger.hasConflict(equipmentId, slot.getStart(), slot.getEnd());
+            if (mongoConflict != conflict) {
+                log.warn("Availability index disagrees with Mongo for equipment {} [{} - {}]: index={}, mongo={}",
+                    equipmentId, slot.getStart(), slot.getEnd(), conflict, mongoConflict);
+                conflict = mongoConflict;
+            }
+        }
+        return conflict;
+    }
+
+    /**
+     * Get the free hours (0-23) of an equipment on a date
+     */
+    public List<Integer> getFreeHours(String equipmentId, LocalDate date) {
+        return availabilityIndex.getFreeHours(equipmentId, date);
     }
 
     /**
@@ -56,96 +151,254 @@ public class BookingService {
     }
 
     /**
-     * Get all bookings of a farmer
+     * Get the farmer and owner ids of a booking, or null if it does not exist.
+     * Reads the raw booking and equipment documents, so no references are resolved.
+     */
+    @Cacheable(cacheNames = CacheConfig.BOOKING_PARTICIPANTS, unless = "#result == null")
+    public BookingParticipants getBookingParticipants(String bookingId) {
+        Query bookingQuery = new Query(Criteria.where("_id").is(bookingId));
+        bookingQuery.fields().include("farmer_id", "equipment_id");
+        Document booking = mongoTemplate.findOne(bookingQuery, Document.class, "bookings");
+        if (booking == null || !(booking.get("farmer_id") instanceof DBRef farmer)
+                || !(booking.get("equipment_id") instanceof DBRef equipment)) {
+            return null;
+        }
+
+        Query equipmentQuery = new Query(Criteria.where("_id").is(equipment.getId()));
+        equipmentQuery.fields().include("owner_id");
+        Document equipmentDoc = mongoTemplate.findOne(equipmentQuery, Document.class, "equipment");
+        if (equipmentDoc == null || !(equipmentDoc.get("owner_id") instanceof DBRef owner)) {
+            return null;
+        }
+        return new BookingParticipants(farmer.getId().toString(), owner.getId().toString());
+    }
+
+    /**
+     * Get all bookings of a farmer, with equipment and owners batch-resolved
      */
     public List<Booking> getFarmerBookings(User farmer) {
-        return bookingRepository.findByFarmer(farmer);
+        return referenceBatchLoader.find(new Query(Criteria.where("farmer").is(farmer.getId())), Booking.class);
     }
 
     /**
-     * Get all bookings for an owner's equipment
+     * Claim a completed, not yet reviewed booking of the farmer for the equipment so it can be reviewed.
+     * One findAndModify on the (farmer, equipment, status) index; returns the booking id, or null if none is eligible.
      */
-    public List<Booking> getOwnerBookings(User owner) {
-        // In Mongo, deep traversal is hard.
-        // We fetch all equipment for owner, then fetch bookings for those equipment.
-        // OR we can use the repository method if we fix the query, but manual is safer here.
-        List<Equipment> equipmentList = equipmentService.getOwnerEquipment(owner);
-        // This is inefficient (N+1), but simple for now. 
-        // Optimization: bookingRepository.findByEquipmentIn(equipmentList)
-        // Since we don't have findByEquipmentIn yet, let's just stream/concat.
-        
-        return equipmentList.stream()
-            .flatMap(eq -> bookingRepository.findByEquipment(eq).stream())
-            .toList();
+    public String claimBookingForReview(String farmerId, String equipmentId) {
+        Query query = new Query(Criteria.where("farmer").is(farmerId)
+            .and("equipment").is(equipmentId)
+            .and("status").is(Booking.BookingStatus.COMPLETED)
+            .and("isReviewed").ne(true));
+        query.fields().include("id");
+        Booking claimed = mongoTemplate.findAndModify(query, new Update().set("isReviewed", true), Booking.class);
+        return claimed != null ? claimed.getId() : null;
+    }
+
+    /**
+     * Make a booking reviewable again, e.g. after its review was deleted
+     */
+    public void releaseReviewClaim(String bookingId) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(bookingId)),
+            new Update().set("isReviewed", false), Booking.class);
+    }
+
+    /**
+     * Whether the farmer has any completed booking of the equipment, reviewed or not
+     */
+    public boolean hasCompletedBooking(String farmerId, String equipmentId) {
+        return mongoTemplate.exists(new Query(Criteria.where("farmer").is(farmerId)
+            .and("equipment").is(equipmentId)
+            .and("status").is(Booking.BookingStatus.COMPLETED)), Booking.class);
+    }
+
+    /**
+     * Get a page of bookings for an owner's equipment, optionally filtered by status
+     * Uses a single $in query over the owner's equipment ids regardless of fleet size
+     */
+    public Page<Booking> getOwnerBookings(User owner, Booking.BookingStatus status, Pageable pageable) {
+        List<String> equipmentIds = equipmentService.getOwnerEquipmentIds(owner);
+        if (equipmentIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        Criteria criteria = Criteria.where("equipment").in(equipmentIds);
+        if (status != null) {
+            criteria.and("status").is(status);
+        }
+        return referenceBatchLoader.find(new Query(criteria), pageable, Booking.class);
+    }
+
+    /**
+     * Get total earnings (confirmed and completed bookings) of an owner
+     * Summed in a single aggregation instead of loading every booking
+     */
+    public BigDecimal getOwnerEarnings(User owner) {
+        List<String> equipmentIds = equipmentService.getOwnerEquipmentIds(owner);
+        if (equipmentIds.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        TypedAggregation<Booking> aggregation = Aggregation.newAggregation(Booking.class,
+            Aggregation.match(Criteria.where("equipment").in(equipmentIds)
+                .and("status").in(Booking.BookingStatus.CONFIRMED, Booking.BookingStatus.COMPLETED)),
+            Aggregation.group().sum(ConvertOperators.valueOf("totalAmount").convertToDecimal()).as("total"));
+
+        Document result = mongoTemplate.aggregate(aggregation, Document.class).getUniqueMappedResult();
+        // $sum is a plain integer 0 when no amount was summed
+        if (result == null || !(result.get("total") instanceof Number total)) {
+            return BigDecimal.ZERO;
+        }
+        return total instanceof Decimal128 decimal ? decimal.bigDecimalValue() : new BigDecimal(total.toString());
     }
 
     /**
      * Approve booking (Owner confirms rental)
      */
+    @CacheEvict(cacheNames = CacheConfig.BOOKING_PARTICIPANTS, key = "#bookingId")
     public Booking approveBooking(String bookingId) {
         log.info("Approving booking: {}", bookingId);
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-        booking.setStatus(Booking.BookingStatus.CONFIRMED);
-        return bookingRepository.save(booking);
+        return applyTransition(bookingId, Booking.BookingStatus.CONFIRMED, null);
     }
 
     /**
      * Reject booking
      */
+    @CacheEvict(cacheNames = CacheConfig.BOOKING_PARTICIPANTS, key = "#bookingId")
     public Booking rejectBooking(String bookingId) {
         log.info("Rejecting booking: {}", bookingId);
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-        booking.setStatus(Booking.BookingStatus.CANCELLED);
-        return bookingRepository.save(booking);
+        return applyTransition(bookingId, Booking.BookingStatus.CANCELLED, null);
     }
 
     /**
      * Cancel booking
+     * Only bookings that have not started yet can be cancelled.
      */
+    @CacheEvict(cacheNames = CacheConfig.BOOKING_PARTICIPANTS, key = "#bookingId")
     public Booking cancelBooking(String bookingId) {
         log.info("Cancelling booking: {}", bookingId);
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-        
-        if (!booking.canBeCancelled()) {
-            throw new RuntimeException("Booking cannot be cancelled at this time");
-        }
-        
-        booking.setStatus(Booking.BookingStatus.CANCELLED);
-        return bookingRepository.save(booking);
+        return applyTransition(bookingId, Booking.BookingStatus.CANCELLED,
+            Criteria.where("startDate").gt(LocalDate.now()));
     }
 
     /**
      * Mark booking as completed
      */
+    @CacheEvict(cacheNames = CacheConfig.BOOKING_PARTICIPANTS, key = "#bookingId")
     public Booking completeBooking(String bookingId) {
         log.info("Completing booking: {}", bookingId);
-        Booking booking = bookingRepository.findById(bookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-        booking.setStatus(Booking.BookingStatus.COMPLETED);
-        return bookingRepository.save(booking);
+        return applyTransition(bookingId, Booking.BookingStatus.COMPLETED, null);
+    }
+
+    /**
+     * Change the status in a single findAndModify conditioned on the current status being one that
+     * may move to the target, so concurrent owner and farmer actions can not overwrite each other.
+     * Only status and updated_at are written. The returned booking references its farmer and
+     * equipment by id only; they are not loaded.
+     */
+    private Booking applyTransition(String bookingId, Booking.BookingStatus target, Criteria condition) {
+        List<Booking.BookingStatus> from = Arrays.stream(Booking.BookingStatus.values())
+            .filter(status -> status.canTransitionTo(target))
+            .toList();
+        Criteria criteria = Criteria.where("id").is(bookingId).and("status").in(from);
+        if (condition != null) {
+            criteria = new Criteria().andOperator(criteria, condition);
+        }
+
+        // Mapped against the entity, then run on raw documents so the DBRefs are not resolved
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext()
+            .getRequiredPersistentEntity(Booking.class);
+        Query query = new BasicQuery(new QueryMapper(mongoTemplate.getConverter())
+            .getMappedObject(criteria.getCriteriaObject(), entity));
+        Update update = new Update().set("status", target).set("updatedAt", LocalDateTime.now());
+        BasicUpdate mappedUpdate = new BasicUpdate(new UpdateMapper(mongoTemplate.getConverter())
+            .getMappedObject(update.getUpdateObject(), entity));
+
+        Document before = mongoTemplate.findAndModify(query, mappedUpdate, Document.class,
+            mongoTemplate.getCollectionName(Booking.class));
+        if (before == null) {
+            throw transitionRejected(bookingId, target);
+        }
+
+        Booking booking = withoutReferences(before);
+        Booking.BookingStatus previous = booking.getStatus();
+        booking.setStatus(target);
+        if (target == Booking.BookingStatus.CANCELLED) {
+            reservationLedger.release(booking.getEquipment().getId(), booking.getId());
+        }
+        availabilityIndex.update(booking);
+        platformStatsService.bookingStatusChanged(previous, booking);
+        return booking;
+    }
+
+    /**
+     * Explain why a transition matched no booking. Only runs when the transition failed.
+     */
+    private RuntimeException transitionRejected(String bookingId, Booking.BookingStatus target) {
+        Query query = new Query(Criteria.where("id").is(bookingId));
+        query.fields().include("status");
+        Booking current = mongoTemplate.findOne(query, Booking.class);
+        if (current == null) {
+            return new RuntimeException("Booking not found");
+        }
+        if (!current.getStatus().canTransitionTo(target)) {
+            return new RuntimeException("Booking is " + current.getStatus() + " and cannot be changed to " + target);
+        }
+        // The status allowed it, so the extra condition of the action (e.g. not started yet) failed
+        String action = switch (target) {
+            case CONFIRMED -> "approved";
+            case CANCELLED -> "cancelled";
+            case COMPLETED -> "completed";
+            case PENDING -> "reopened";
+        };
+        return new RuntimeException("Booking cannot be " + action + " at this time");
+    }
+
+    /**
+     * Read a raw booking document, replacing its farmer and equipment references with id-only stubs
+     */
+    private Booking withoutReferences(Document doc) {
+        Object farmerRef = doc.remove("farmer_id");
+        Object equipmentRef = doc.remove("equipment_id");
+        Booking booking = mongoTemplate.getConverter().read(Booking.class, doc);
+        if (farmerRef instanceof DBRef ref) {
+            User farmer = new User();
+            farmer.setId(ref.getId().toString());
+            booking.setFarmer(farmer);
+        }
+        if (equipmentRef instanceof DBRef ref) {
+            Equipment equipment = new Equipment();
+            equipment.setId(ref.getId().toString());
+            booking.setEquipment(equipment);
+        }
+        return booking;
     }
 
     /**
      * Get all pending bookings
      */
     public List<Booking> getPendingBookings() {
-        return bookingRepository.findByStatus(Booking.BookingStatus.PENDING);
+        return referenceBatchLoader.find(
+            new Query(Criteria.where("status").is(Booking.BookingStatus.PENDING)), Booking.class);
     }
 
     /**
      * Get all bookings for a specific equipment
      */
     public List<Booking> getEquipmentBookings(Equipment equipment) {
-        return bookingRepository.findByEquipment(equipment);
+        return referenceBatchLoader.find(
+            new Query(Criteria.where("equipment").is(equipment.getId())), Booking.class);
+    }
+
+    /**
+     * Get the most recently created bookings (Admin), newest first via the _id index
+     */
+    public List<Booking> getRecentBookings(int limit) {
+        Query query = new Query().with(Sort.by(Sort.Direction.DESC, "id")).limit(limit);
+        return referenceBatchLoader.find(query, Booking.class);
     }
 
     /**
-     * Get all bookings (Admin)
+     * Get all bookings (Admin), with farmers, equipment and owners batch-resolved
      */
     public List<Booking> getAllBookings() {
-        return bookingRepository.findAll();
+        return referenceBatchLoader.find(new Query(), Booking.class);
     }
 }
@@ -0,0 +1,254 @@
+package com.farming.rental.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.farming.rental.entity.Message;
+import com.mongodb.CursorType;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for pushing chat messages to connected users over Server-Sent Events
+ * Keeps an in-memory registry of open streams per user. Idle streams only receive
+ * a periodic heartbeat comment; nothing is read from the database until a message is sent.
+ * Sender and receiver may be connected to different instances, so a published message is
+ * written to a capped collection that every instance tails, and each delivers it to the
+ * streams it holds.
+ */
+@Service
+@Slf4j
+public class ChatPushService {
+
+    static final String EVENTS_COLLECTION = "chat_events";
+    // Events this old are replayed when a tail starts or restarts; clients drop duplicates by id
+    private static final long REPLAY_WINDOW_MS = 5000;
+
+    private final Map<String, Set<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    private volatile boolean running;
+    private Thread tailer;
+
+    // Streams are closed after this long; the browser reconnects automatically
+    @Value("${chat.push.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    @Value("${chat.push.max-streams-per-user:5}")
+    private int maxStreamsPerUser;
+
+    // Fan messages out through Mongo; off delivers only to streams on the sending instance
+    @Value("${chat.push.cluster-fanout:true}")
+    private boolean clusterFanout;
+
+    @Value("${chat.push.events-max-bytes:8388608}")
+    private long eventsMaxBytes;
+
+    public ChatPushService(MongoTemplate mongoTemplate, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!clusterFanout) {
+            return;
+        }
+        running = true;
+        tailer = new Thread(this::tail, "chat-events-tailer");
+        tailer.setDaemon(true);
+        tailer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (tailer != null) {
+            tailer.interrupt();
+        }
+    }
+
+    /**
+     * Open a stream for a user
+     */
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        List<SseEmitter> evicted = new ArrayList<>();
+        emittersByUser.compute(userId, (id, emitters) -> {
+            Set<SseEmitter> registered = emitters != null ? emitters : new CopyOnWriteArraySet<>();
+            // Drop the oldest streams of a user with too many tabs open
+            Iterator<SseEmitter> oldest = registered.iterator();
+            while (registered.size() - evicted.size() >= maxStreamsPerUser && oldest.hasNext()) {
+                evicted.add(oldest.next());
+            }
+            registered.removeAll(evicted);
+            registered.add(emitter);
+            return registered;
+        });
+        evicted.forEach(SseEmitter::complete);
+
+        emitter.onCompletion(() -> unregister(userId, emitter));
+        emitter.onTimeout(() -> unregister(userId, emitter));
+        emitter.onError(e -> unregister(userId, emitter));
+
+        try {
+            emitter.send(SseEmitter.event().name("connected").data(userId));
+        } catch (IOException e) {
+            unregister(userId, emitter);
+        }
+        return emitter;
+    }
+
+    /**
+     * Deliver a saved message to the open streams of its sender and receiver, on every instance
+     */
+    public void publish(Message message) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize chat message {}: {}", message.getId(), e.getMessage());
+            return;
+        }
+        List<String> recipients = message.getReceiver().getId().equals(message.getSender().getId())
+            ? List.of(message.getSender().getId())
+            : List.of(message.getSender().getId(), message.getReceiver().getId());
+
+        if (clusterFanout) {
+            try {
+                mongoTemplate.getCollection(EVENTS_COLLECTION).insertOne(new Document("message_id", message.getId())
+                    .append("recipients", recipients)
+                    .append("payload", payload)
+                    .append("published_at", new Date()));
+                return; // Delivered here too, by this instance's tailer
+            } catch (Exception e) {
+                log.warn("Failed to fan out chat message {}, delivering locally only: {}", message.getId(), e.getMessage());
+            }
+        }
+        recipients.forEach(userId -> send(userId, message.getId(), payload));
+    }
+
+    /**
+     * Follow the events collection with a tailable cursor and deliver each event to local streams.
+     * A cursor that dies (e.g. the collection was recreated) is reopened after a short pause.
+     */
+    private void tail() {
+        long resumeFrom = System.currentTimeMillis() - REPLAY_WINDOW_MS;
+        while (running) {
+            try {
+                MongoCollection<Document> events = eventsCollection();
+                try (MongoCursor<Document> cursor = events.find(Filters.gte("published_at", new Date(resumeFrom)))
+                        .cursorType(CursorType.TailableAwait)
+                        .maxAwaitTime(1, TimeUnit.SECONDS)
+                        .iterator()) {
+                    while (running) {
+                        Document event = cursor.tryNext();
+                        if (event == null) {
+                            if (cursor.getServerCursor() == null) {
+                                break; // Dead cursor; reopen
+                            }
+                            continue;
+                        }
+                        if (event.get("payload") instanceof String payload) {
+                            resumeFrom = event.getDate("published_at").getTime() - REPLAY_WINDOW_MS;
+                            for (String userId : event.getList("recipients", String.class)) {
+                                send(userId, event.getString("message_id"), payload);
+                            }
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.warn("Chat events tail failed, retrying: {}", e.getMessage());
+                }
+            }
+            sleepQuietly();
+        }
+    }
+
+    /**
+     * The capped events collection, created on first use. A tailable cursor on an empty capped
+     * collection is closed by the server straight away, so a marker event is written with it.
+     */
+    private MongoCollection<Document> eventsCollection() {
+        if (!mongoTemplate.collectionExists(EVENTS_COLLECTION)) {
+            try {
+                mongoTemplate.createCollection(EVENTS_COLLECTION, CollectionOptions.empty().capped().size(eventsMaxBytes));
+                mongoTemplate.getCollection(EVENTS_COLLECTION).insertOne(new Document("published_at", new Date(0)));
+            } catch (Exception e) {
+                log.debug("Chat events collection created concurrently: {}", e.getMessage());
+            }
+        }
+        return mongoTemplate.getCollection(EVENTS_COLLECTION);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * Keep idle connections open through proxies and detect clients that went away
+     */
+    @Scheduled(fixedDelayString = "${chat.push.heartbeat-ms:25000}")
+    public void heartbeat() {
+        emittersByUser.forEach((userId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    unregister(userId, emitter);
+                }
+            }
+        });
+    }
+
+    private void send(String userId, String messageId, String payload) {
+        Set<SseEmitter> emitters = emittersByUser.get(userId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("message").id(messageId).data(payload, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping chat stream of user {}: {}", userId, e.getMessage());
+                unregister(userId, emitter);
+            }
+        }
+    }
+
+    private void unregister(String userId, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(userId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
@@ -1,14 +1,44 @@
 package com.farming.rental.service;
 
+import com.farming.rental.config.CacheConfig;
+import com.farming.rental.dto.CursorPage;
+import com.farming.rental.dto.NearbyEquipmentDTO;
+import com.farming.rental.dto.RatingSummary;
 import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.OwnerSummary;
 import com.farming.rental.entity.User;
 import com.farming.rental.repository.EquipmentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.geo.Metrics;
 import org.springframework.data.geo.Point;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,22 +52,161 @@ import java.util.Optional;
 public class EquipmentService {
 
     private final EquipmentRepository equipmentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final ReferenceBatchLoader referenceBatchLoader;
+    private final PlatformStatsService platformStatsService;
+    private final ImageVariantService imageVariantService;
+
+    public static final int MAX_CATALOG_PAGE_SIZE = 50;
+
+    public static final double DEFAULT_RADIUS_KM = 50;
+    public static final double MAX_RADIUS_KM = 500;
+    public static final int DEFAULT_NEARBY_LIMIT = 20;
+    public static final int MAX_NEARBY_LIMIT = 100;
+
+    /**
+     * Sort orders of the public catalog. Every order ends with _id so the keyset is unique.
+     */
+    public enum CatalogSort {
+        NEWEST,  // _id descending (ObjectIds grow with insertion time)
+        PRICE,   // price per day ascending
+        RATING   // rating descending
+    }
 
     /**
      * Get all available equipment
      */
+    @Cacheable(CacheConfig.AVAILABLE_EQUIPMENT)
     public List<Equipment> getAvailableEquipment() {
         return equipmentRepository.findByIsAvailableAndIsApprovedTrue(true);
     }
 
+    /**
+     * Get a page of approved, available equipment using keyset pagination
+     * The cursor holds the sort key and id of the last item, so each page is an index range scan
+     */
+    public CursorPage<Equipment> getCatalogPage(String category, CatalogSort sort, String cursor,
+                                                int size, boolean includeTotal) {
+        int limit = Math.min(Math.max(size, 1), MAX_CATALOG_PAGE_SIZE);
+
+        Criteria filter = Criteria.where("isApproved").is(true).and("isAvailable").is(true);
+        if (category != null && !category.isEmpty()) {
+            filter = Criteria.where("category").is(category).and("isApproved").is(true).and("isAvailable").is(true);
+        }
+        // Every item needs its sort keys for the cursor. Equipment without a daily price can not be booked,
+        // and DecimalFieldMigration gives unrated equipment a rating of zero.
+        filter = filter.and("pricePerDay").ne(null).and("rating").ne(null);
+
+        Query query = new Query(filter);
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(afterCursor(sort, cursor));
+        }
+        query.with(catalogSort(sort)).limit(limit + 1);
+        query.fields().exclude("owner");
+
+        List<Equipment> items = mongoTemplate.find(query, Equipment.class);
+        boolean hasMore = items.size() > limit;
+        if (hasMore) {
+            items = items.subList(0, limit);
+        }
+
+        String nextCursor = hasMore ? encodeCursor(sort, items.get(items.size() - 1)) : null;
+        Long total = includeTotal ? mongoTemplate.count(new Query(filter), Equipment.class) : null;
+        return new CursorPage<>(items, nextCursor, hasMore, total);
+    }
+
+    private Sort catalogSort(CatalogSort sort) {
+        return switch (sort) {
+            case NEWEST -> Sort.by(Sort.Direction.DESC, "id");
+            case PRICE -> Sort.by(Sort.Direction.ASC, "pricePerDay", "id");
+            case RATING -> Sort.by(Sort.Direction.DESC, "rating", "id");
+        };
+    }
+
+    private Criteria afterCursor(CatalogSort sort, String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(sort.name()) || !ObjectId.isValid(parts[2])) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        ObjectId lastId = new ObjectId(parts[2]);
+
+        return switch (sort) {
+            case NEWEST -> Criteria.where("id").lt(lastId);
+            case PRICE -> {
+                Decimal128 lastPrice = new Decimal128(new BigDecimal(parts[1]));
+                yield new Criteria().orOperator(
+                    Criteria.where("pricePerDay").gt(lastPrice),
+                    Criteria.where("pricePerDay").is(lastPrice).and("id").gt(lastId));
+            }
+            case RATING -> {
+                Decimal128 lastRating = new Decimal128(new BigDecimal(parts[1]));
+                yield new Criteria().orOperator(
+                    Criteria.where("rating").lt(lastRating),
+                    Criteria.where("rating").is(lastRating).and("id").lt(lastId));
+            }
+        };
+    }
+
+    private String encodeCursor(CatalogSort sort, Equipment last) {
+        String key = switch (sort) {
+            case NEWEST -> "";
+            case PRICE -> last.getPricePerDay().toPlainString();
+            case RATING -> last.getRating().toPlainString();
+        };
+        String raw = sort.name() + "|" + key + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
     public List<Equipment> getNearestEquipment(double lat, double lng) {
         log.info("Fetching nearest equipment to [{}, {}]", lat, lng);
-        return equipmentRepository.findByCoordinatesNear(new Point(lng, lat));
+        return searchNearby(lat, lng, DEFAULT_RADIUS_KM, null, null, null, DEFAULT_NEARBY_LIMIT).stream()
+            .map(NearbyEquipmentDTO::getEquipment)
+            .toList();
+    }
+
+    /**
+     * Search approved, available equipment within a radius, nearest first
+     * Runs as a single $geoNear aggregation on the 2dsphere index with the filters applied inside it;
+     * the owner DBRef is projected away so no users are loaded
+     */
+    public List<NearbyEquipmentDTO> searchNearby(double lat, double lng, double radiusKm, String category,
+                                                 BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        Criteria filter = Criteria.where("isApproved").is(true).and("isAvailable").is(true);
+        if (category != null && !category.isEmpty()) {
+            filter = filter.and("category").is(category);
+        }
+        if (minPrice != null && maxPrice != null) {
+            filter = filter.and("pricePerDay").gte(new Decimal128(minPrice)).lte(new Decimal128(maxPrice));
+        } else if (minPrice != null) {
+            filter = filter.and("pricePerDay").gte(new Decimal128(minPrice));
+        } else if (maxPrice != null) {
+            filter = filter.and("pricePerDay").lte(new Decimal128(maxPrice));
+        }
+
+        NearQuery near = NearQuery.near(new Point(lng, lat), Metrics.KILOMETERS)
+            .maxDistance(Math.min(Math.max(radiusKm, 0), MAX_RADIUS_KM))
+            .spherical(true)
+            .query(new Query(filter).limit(Math.min(Math.max(limit, 1), MAX_NEARBY_LIMIT)));
+
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.geoNear(near, "distance"),
+            Aggregation.project().andExclude("owner_id"));
+
+        return mongoTemplate.aggregate(aggregation, Equipment.class, Document.class).getMappedResults().stream()
+            .map(doc -> new NearbyEquipmentDTO(
+                mongoTemplate.getConverter().read(Equipment.class, doc), doc.getDouble("distance")))
+            .toList();
     }
 
     /**
      * Get equipment by category
      */
+    @Cacheable(CacheConfig.EQUIPMENT_BY_CATEGORY)
     public List<Equipment> getEquipmentByCategory(String category) {
         return equipmentRepository.findAvailableByCategory(category);
     }
@@ -49,6 +218,14 @@ public class EquipmentService {
         return equipmentRepository.findById(id);
     }
 
+    /**
+     * Get equipment by ID for public display, with the owner summary instead of the owner DBRef
+     */
+    @Cacheable(CacheConfig.EQUIPMENT)
+    public Optional<Equipment> getPublicEquipmentById(String id) {
+        return equipmentRepository.findPublicById(id);
+    }
+
     /**
      * Get all equipment of an owner
      */
@@ -56,41 +233,155 @@ public class EquipmentService {
         return equipmentRepository.findByOwner(owner);
     }
 
+    /**
+     * Get the ids of all equipment of an owner
+     */
+    public List<String> getOwnerEquipmentIds(User owner) {
+        return equipmentRepository.findIdsByOwnerId(owner.getId()).stream()
+            .map(Equipment::getId)
+            .toList();
+    }
+
     /**
      * Add new equipment
+     * New equipment is pending approval and not publicly listed, and has no cached entry yet,
+     * so no cache needs evicting
      */
     public Equipment addEquipment(Equipment equipment) {
         log.info("Adding new equipment: {}", equipment.getName());
         equipment.setIsApproved(false); // Requires admin approval
         equipment.setTotalBookings(0);
-        return equipmentRepository.save(equipment);
+        equipment.setOwnerSummary(OwnerSummary.of(equipment.getOwner()));
+        setImageVariants(equipment);
+        Equipment saved = equipmentRepository.save(equipment);
+        platformStatsService.equipmentAdded();
+        return saved;
     }
 
     /**
      * Update equipment
      */
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.EQUIPMENT, key = "#equipment.id"),
+        @CacheEvict(cacheNames = {CacheConfig.AVAILABLE_EQUIPMENT, CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    })
     public Equipment updateEquipment(Equipment equipment) {
         log.info("Updating equipment: {}", equipment.getId());
+        if (equipment.getOwner() != null) {
+            equipment.setOwnerSummary(OwnerSummary.of(equipment.getOwner()));
+        }
+        setImageVariants(equipment);
         return equipmentRepository.save(equipment);
     }
 
+    /**
+     * Point the thumbnail and medium URLs at the variants of the current image
+     */
+    private void setImageVariants(Equipment equipment) {
+        equipment.setThumbnailUrl(imageVariantService.variantUrl(equipment.getImageUrl(), ImageVariantService.Variant.THUMBNAIL));
+        equipment.setMediumUrl(imageVariantService.variantUrl(equipment.getImageUrl(), ImageVariantService.Variant.MEDIUM));
+    }
+
+    /**
+     * Rewrite the embedded owner summary on all equipment of the given owners in one bulk write
+     */
+    @CacheEvict(cacheNames = {CacheConfig.EQUIPMENT, CacheConfig.AVAILABLE_EQUIPMENT,
+        CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    public void updateOwnerSummaries(Collection<OwnerSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Equipment.class);
+        for (OwnerSummary summary : summaries) {
+            bulk.updateMulti(new Query(Criteria.where("owner").is(summary.getId())),
+                new Update().set("ownerSummary", summary));
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Add (delta 1) or remove (delta -1) a review rating on the equipment's aggregates.
+     * A single pipeline update adjusts sum, count and histogram and recomputes the average,
+     * so concurrent reviews can not overwrite each other.
+     */
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.EQUIPMENT, key = "#equipmentId"),
+        @CacheEvict(cacheNames = {CacheConfig.AVAILABLE_EQUIPMENT, CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    })
+    public void applyReviewRating(String equipmentId, int rating, int delta) {
+        String star = "rating_histogram." + rating;
+        AggregationUpdate update = AggregationUpdate.update()
+            .set("rating_sum").toValue(incremented("rating_sum", (long) rating * delta))
+            .set("rating_count").toValue(incremented("rating_count", delta))
+            .set(star).toValue(incremented(star, delta))
+            .set("rating").toValue(ConditionalOperators
+                .when(ComparisonOperators.Gt.valueOf("rating_count").greaterThanValue(0))
+                .then(ArithmeticOperators.Round.roundValueOf(ConvertOperators.ToDecimal.toDecimal(
+                    ArithmeticOperators.Divide.valueOf("rating_sum").divideBy("rating_count"))).place(2))
+                .otherwise(new Decimal128(0)));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(equipmentId)), update, Equipment.class);
+    }
+
+    private static AggregationExpression incremented(String field, long delta) {
+        return ArithmeticOperators.Add.valueOf(ConditionalOperators.ifNull(field).then(0L)).add(delta);
+    }
+
+    /**
+     * Overwrite the rating aggregates of several equipment in one bulk write (reconciliation)
+     */
+    @CacheEvict(cacheNames = {CacheConfig.EQUIPMENT, CacheConfig.AVAILABLE_EQUIPMENT,
+        CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    public void updateRatingSummaries(Collection<RatingSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Equipment.class);
+        for (RatingSummary summary : summaries) {
+            bulk.updateOne(new Query(Criteria.where("_id").is(summary.getEquipmentId())),
+                new Update()
+                    .set("ratingSum", summary.getSum())
+                    .set("ratingCount", summary.getCount())
+                    .set("ratingHistogram", summary.getHistogram())
+                    .set("rating", summary.getAverage()));
+        }
+        bulk.execute();
+    }
+
     /**
      * Delete equipment
      */
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.EQUIPMENT, key = "#id"),
+        @CacheEvict(cacheNames = {CacheConfig.AVAILABLE_EQUIPMENT, CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    })
     public void deleteEquipment(String id) {
         log.info("Deleting equipment: {}", id);
-        equipmentRepository.deleteById(id);
+        Query query = new Query(Criteria.where("_id").is(id));
+        query.fields().include("isApproved");
+        Equipment removed = mongoTemplate.findAndRemove(query, Equipment.class);
+        if (removed != null) {
+            platformStatsService.equipmentDeleted(Boolean.TRUE.equals(removed.getIsApproved()));
+        }
     }
 
     /**
      * Approve equipment (Admin only)
      */
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.EQUIPMENT, key = "#id"),
+        @CacheEvict(cacheNames = {CacheConfig.AVAILABLE_EQUIPMENT, CacheConfig.EQUIPMENT_BY_CATEGORY}, allEntries = true)
+    })
     public Equipment approveEquipment(String id) {
         log.info("Approving equipment: {}", id);
         Equipment equipment = equipmentRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Equipment not found"));
+        boolean wasApproved = Boolean.TRUE.equals(equipment.getIsApproved());
         equipment.setIsApproved(true);
-        return equipmentRepository.save(equipment);
+        Equipment saved = equipmentRepository.save(equipment);
+        if (!wasApproved) {
+            platformStatsService.equipmentApproved();
+        }
+        return saved;
     }
 
     /**
@@ -104,6 +395,16 @@ public class EquipmentService {
         return equipment.get().canBeBooked(startDate, endDate);
     }
 
+    /**
+     * Get the most recently listed equipment awaiting approval, with owners batch-resolved (Admin only)
+     */
+    public List<Equipment> getPendingEquipment(int limit) {
+        Query query = new Query(Criteria.where("isApproved").is(false))
+            .with(Sort.by(Sort.Direction.DESC, "id"))
+            .limit(limit);
+        return referenceBatchLoader.find(query, Equipment.class);
+    }
+
     /**
      * Get all equipment (Admin only)
      */
@@ -0,0 +1,124 @@
+package com.farming.rental.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.gridfs.GridFsOperations;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.data.mongodb.gridfs.GridFsCriteria.whereFilename;
+
+/**
+ * Image store in MongoDB GridFS, shared by all instances
+ * Files read from GridFS are kept in memory up to images.gridfs.cache-max-bytes, so popular
+ * images are served without a database round trip.
+ */
+@Component
+@ConditionalOnProperty(name = "images.storage", havingValue = "gridfs")
+@Slf4j
+public class GridFsImageStore implements ImageStore {
+
+    private final GridFsOperations gridFsOperations;
+    private final Cache<String, CachedImage> cache;
+
+    public GridFsImageStore(GridFsOperations gridFsOperations,
+                            @Value("${images.gridfs.cache-max-bytes:67108864}") long cacheMaxBytes) {
+        this.gridFsOperations = gridFsOperations;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(cacheMaxBytes)
+            .weigher((String fileName, CachedImage image) -> image.getContent().length)
+            .build();
+    }
+
+    @Override
+    public StoredImage find(String fileName) throws IOException {
+        try {
+            // Concurrent misses on the same file wait for one read instead of each querying GridFS
+            return cache.get(fileName, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        return cache.getIfPresent(fileName) != null || findFile(fileName) != null;
+    }
+
+    @Override
+    public void put(String fileName, Path source) throws IOException {
+        if (exists(fileName)) {
+            return;
+        }
+        String contentType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+        try (InputStream in = Files.newInputStream(source)) {
+            gridFsOperations.store(in, fileName, contentType);
+        }
+        log.debug("Stored {} in GridFS", fileName);
+    }
+
+    private CachedImage load(String fileName) {
+        GridFSFile file = findFile(fileName);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream in = gridFsOperations.getResource(file).getInputStream()) {
+            return new CachedImage(in.readAllBytes(), file.getUploadDate().getTime());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private GridFSFile findFile(String fileName) {
+        // A file stored twice by concurrent uploads has the same content either way
+        return gridFsOperations.find(query(whereFilename().is(fileName))).first();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class CachedImage implements StoredImage {
+
+        private final byte[] content;
+        private final long lastModified;
+
+        @Override
+        public long getLength() {
+            return content.length;
+        }
+
+        @Override
+        public Path getFile() {
+            return null;
+        }
+
+        @Override
+        public InputStream openStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel out) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(content, (int) position, (int) count);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+}
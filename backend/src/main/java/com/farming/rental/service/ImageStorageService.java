@@ -0,0 +1,207 @@
+package com.farming.rental.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Service for storing uploaded equipment images
+ * Uploads are streamed to a temporary file while being hashed, and stored under their SHA-256,
+ * so the same photo uploaded many times is kept once. The type is checked from the
+ * file's leading bytes, not from its name or declared content type.
+ */
+@Service
+@Slf4j
+public class ImageStorageService {
+
+    public static final String PUBLIC_PATH = "/images/uploads/";
+
+    private static final int HEADER_LENGTH = 12;
+    // sha256.ext or a variant of it, sha256-w320.ext
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}(-w\\d+)?\\.[a-z]+");
+
+    /**
+     * Accepted image formats and their signatures
+     */
+    private enum ImageType {
+        JPEG("jpg"),
+        PNG("png"),
+        GIF("gif"),
+        WEBP("webp");
+
+        private final String extension;
+
+        ImageType(String extension) {
+            this.extension = extension;
+        }
+
+        static ImageType detect(byte[] header) {
+            if (startsWith(header, 0, 0xFF, 0xD8, 0xFF)) {
+                return JPEG;
+            }
+            if (startsWith(header, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+                return PNG;
+            }
+            if (startsWith(header, 0, 'G', 'I', 'F', '8') && header.length > 5
+                    && (header[4] == '7' || header[4] == '9') && header[5] == 'a') {
+                return GIF;
+            }
+            if (startsWith(header, 0, 'R', 'I', 'F', 'F') && startsWith(header, 8, 'W', 'E', 'B', 'P')) {
+                return WEBP;
+            }
+            return null;
+        }
+
+        private static boolean startsWith(byte[] header, int offset, int... signature) {
+            if (header.length < offset + signature.length) {
+                return false;
+            }
+            for (int i = 0; i < signature.length; i++) {
+                if ((header[offset + i] & 0xFF) != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final ImageStore imageStore;
+    private final ImageVariantService imageVariantService;
+    private final Path workDir;
+    private final long rebuildTimeoutMs;
+    // Hashes of files stored before uploads were content-addressed, keyed by name, size and modification time
+    private final Cache<String, String> legacyHashes = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    public ImageStorageService(ImageStore imageStore,
+                               ImageVariantService imageVariantService,
+                               @Value("${images.upload-dir:uploads/equipment}") String uploadDir,
+                               @Value("${images.variants.rebuild-timeout-ms:10000}") long rebuildTimeoutMs) {
+        this.imageStore = imageStore;
+        this.imageVariantService = imageVariantService;
+        this.workDir = Paths.get(uploadDir);
+        this.rebuildTimeoutMs = rebuildTimeoutMs;
+    }
+
+    /**
+     * Store an uploaded image and return its public URL
+     */
+    public String store(MultipartFile image) throws IOException {
+        Files.createDirectories(workDir);
+        Path temp = Files.createTempFile(workDir, "upload-", ".tmp");
+        try (InputStream in = new BufferedInputStream(image.getInputStream())) {
+            in.mark(HEADER_LENGTH);
+            byte[] header = in.readNBytes(HEADER_LENGTH);
+            in.reset();
+            ImageType type = ImageType.detect(header);
+            if (type == null) {
+                throw new RuntimeException("Unsupported image type. Please upload a JPEG, PNG, GIF or WebP image.");
+            }
+
+            // Copied in small chunks; the digest sees every byte on the way to disk
+            MessageDigest digest = sha256();
+            Files.copy(new DigestInputStream(in, digest), temp, StandardCopyOption.REPLACE_EXISTING);
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + type.extension;
+            if (imageStore.exists(fileName)) {
+                log.debug("Image {} already stored, skipping duplicate", fileName);
+            } else {
+                imageStore.put(fileName, temp);
+            }
+            // Thumbnails are made off the request thread; existing ones are skipped
+            imageVariantService.generateAsync(fileName);
+            return PUBLIC_PATH + fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Locate a stored image or image variant by file name. A missing variant is rebuilt on the variant
+     * workers while this request waits for up to images.variants.rebuild-timeout-ms.
+     * Returns null if there is no such file; throws RejectedExecutionException if the variant can not be
+     * built in time, so the caller can ask the client to retry.
+     */
+    public StoredImage resolve(String fileName) throws IOException {
+        if (fileName.startsWith(".") || fileName.contains("/") || fileName.contains("\\")) {
+            return null;
+        }
+        StoredImage image = imageStore.find(fileName);
+        if (image == null && awaitRebuild(fileName)) {
+            image = imageStore.find(fileName);
+        }
+        return image;
+    }
+
+    private boolean awaitRebuild(String fileName) {
+        try {
+            return imageVariantService.rebuild(fileName).get(rebuildTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RejectedExecutionException("Image variant " + fileName + " is still being generated");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException rejected) {
+                throw rejected;
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * True if the file is named after its content, so it never changes under its URL
+     */
+    public boolean isContentAddressed(String fileName) {
+        return CONTENT_ADDRESSED_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Strong entity tag of a stored file. Content-addressed names already are one;
+     * older files are hashed on first use.
+     */
+    public String entityTag(String fileName, StoredImage image) throws IOException {
+        if (isContentAddressed(fileName)) {
+            return "\"" + fileName.substring(0, fileName.lastIndexOf('.')) + "\"";
+        }
+        String key = fileName + ":" + image.getLength() + ":" + image.getLastModified();
+        String hash = legacyHashes.getIfPresent(key);
+        if (hash == null) {
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(image.openStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+            legacyHashes.put(key, hash);
+        }
+        return "\"" + hash + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
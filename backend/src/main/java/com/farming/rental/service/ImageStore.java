@@ -0,0 +1,24 @@
+package com.farming.rental.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Storage backend for uploaded images and their variants (local directory, GridFS, ...)
+ * Files are addressed by name only and are never changed once stored.
+ */
+public interface ImageStore {
+
+    /**
+     * Look up a stored file. Returns null if there is none.
+     */
+    StoredImage find(String fileName) throws IOException;
+
+    boolean exists(String fileName);
+
+    /**
+     * Store a file under the given name, unless one is stored already. The source file
+     * may be moved into the store; the caller deletes it if it is still there afterwards.
+     */
+    void put(String fileName, Path source) throws IOException;
+}
@@ -0,0 +1,288 @@
+package com.farming.rental.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service for fixed-width derivatives of uploaded images (thumbnails for listings, medium for detail pages)
+ * Variants are generated in the background after an upload and stored in the image store next to
+ * the original as name-w{width}.{jpg|png}. A variant that is missing when requested is rebuilt on the
+ * same worker pool; concurrent requests for it share one rebuild.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Variant {
+        THUMBNAIL(320),
+        MEDIUM(800);
+
+        private final int width;
+    }
+
+    private static final Pattern VARIANT_NAME = Pattern.compile("([^/\\\\]+)-w(\\d+)\\.(jpg|png)");
+    private static final List<String> SOURCE_EXTENSIONS = List.of("jpg", "jpeg", "png", "gif", "JPG", "JPEG", "PNG", "GIF");
+    // Larger images are rejected rather than decoded, to bound memory per worker
+    private static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    private final ImageStore imageStore;
+    private final Path workDir;
+    private final ThreadPoolExecutor workers;
+    // Variant file name -> generation queued or running for it
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    public ImageVariantService(ImageStore imageStore,
+                               @Value("${images.upload-dir:uploads/equipment}") String uploadDir,
+                               @Value("${images.variants.workers:2}") int workerCount,
+                               @Value("${images.variants.queue-capacity:100}") int queueCapacity) {
+        this.imageStore = imageStore;
+        this.workDir = Paths.get(uploadDir);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A full queue rejects new work with RejectedExecutionException
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            task -> {
+                Thread thread = new Thread(task, "image-variant-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * URL of a variant of an uploaded image. Images that can not be resized keep their own URL.
+     */
+    public String variantUrl(String imageUrl, Variant variant) {
+        if (imageUrl == null || !imageUrl.startsWith(ImageStorageService.PUBLIC_PATH)) {
+            return imageUrl;
+        }
+        String variantName = variantName(imageUrl.substring(ImageStorageService.PUBLIC_PATH.length()), variant);
+        return variantName == null ? imageUrl : ImageStorageService.PUBLIC_PATH + variantName;
+    }
+
+    /**
+     * Generate all variants of a stored image in the background
+     */
+    public void generateAsync(String fileName) {
+        for (Variant variant : Variant.values()) {
+            String targetName = variantName(fileName, variant);
+            if (targetName == null) {
+                return;
+            }
+            try {
+                schedule(targetName, () -> {
+                    StoredImage source = imageStore.find(fileName);
+                    return source != null && generate(fileName, source, variant);
+                });
+            } catch (RejectedExecutionException e) {
+                // Not lost: the variant is rebuilt when first requested
+                log.warn("Image variant queue full, deferring {} to its first request", targetName);
+            }
+        }
+    }
+
+    /**
+     * Rebuild a missing variant file from its original on the worker pool.
+     * Completes with true if the file exists afterwards; throws RejectedExecutionException if the queue is full.
+     */
+    public CompletableFuture<Boolean> rebuild(String fileName) {
+        Matcher matcher = VARIANT_NAME.matcher(fileName);
+        if (!matcher.matches() || matcher.group(1).contains("..")) {
+            return CompletableFuture.completedFuture(false);
+        }
+        Variant variant = forWidth(Integer.parseInt(matcher.group(2)));
+        if (variant == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String baseName = matcher.group(1);
+        String format = matcher.group(3);
+        return schedule(fileName, () -> {
+            for (String extension : SOURCE_EXTENSIONS) {
+                if (!format.equals(outputFormat(extension))) {
+                    continue;
+                }
+                String sourceName = baseName + "." + extension;
+                StoredImage source = imageStore.find(sourceName);
+                if (source != null) {
+                    return generate(sourceName, source, variant);
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Run the generation of a variant on the pool, or join the one already queued or running for it
+     */
+    private CompletableFuture<Boolean> schedule(String targetName, Callable<Boolean> task) {
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(targetName, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    created.complete(task.call());
+                } catch (Exception e) {
+                    log.warn("Failed to generate image variant {}: {}", targetName, e.getMessage());
+                    created.complete(false);
+                } finally {
+                    inFlight.remove(targetName, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(targetName, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created;
+    }
+
+    /**
+     * Store a variant of an image unless it already exists. Returns false if the image can not be decoded.
+     */
+    private boolean generate(String sourceName, StoredImage source, Variant variant) throws IOException {
+        String targetName = variantName(sourceName, variant);
+        if (targetName == null) {
+            return false;
+        }
+        if (imageStore.exists(targetName)) {
+            return true;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        BufferedImage original = decode(sourceName, source, variant.getWidth());
+        if (original == null) {
+            return false;
+        }
+        String format = targetName.substring(targetName.lastIndexOf('.') + 1);
+        BufferedImage resized = resize(original, variant.getWidth(), "png".equals(format));
+
+        Files.createDirectories(workDir);
+        Path temp = Files.createTempFile(workDir, "variant-", ".tmp");
+        try {
+            ImageIO.write(resized, format, temp.toFile());
+            imageStore.put(targetName, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.debug("Generated {} ({}px) in {} ms", targetName, resized.getWidth(),
+            System.currentTimeMillis() - startedAt);
+        return true;
+    }
+
+    /**
+     * Decode an image, skipping rows and columns of large originals so the full-size bitmap is never built
+     */
+    private BufferedImage decode(String sourceName, StoredImage source, int targetWidth) throws IOException {
+        try (InputStream in = source.openStream();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    log.warn("Image {} is {}x{}, too large to resize", sourceName, width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (targetWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage original, int maxWidth, boolean keepAlpha) {
+        int width = Math.min(maxWidth, original.getWidth());
+        int height = Math.max(1, Math.round((float) original.getHeight() * width / original.getWidth()));
+        BufferedImage resized = new BufferedImage(width, height,
+            keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    /**
+     * File name of a variant of a stored image, or null if the image can not be resized
+     */
+    private static String variantName(String fileName, Variant variant) {
+        int dot = fileName.lastIndexOf('.');
+        String format = dot < 0 ? null : outputFormat(fileName.substring(dot + 1));
+        if (format == null) {
+            return null;
+        }
+        return fileName.substring(0, dot) + "-w" + variant.getWidth() + "." + format;
+    }
+
+    /**
+     * Format variants of an image are written in: JPEG stays JPEG, PNG and GIF become PNG.
+     * Null for formats that can not be decoded (e.g. WebP).
+     */
+    private static String outputFormat(String sourceExtension) {
+        return switch (sourceExtension.toLowerCase()) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png", "gif" -> "png";
+            default -> null;
+        };
+    }
+
+    private static Variant forWidth(int width) {
+        for (Variant variant : Variant.values()) {
+            if (variant.getWidth() == width) {
+                return variant;
+            }
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,136 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.AuthenticatedUser;
+import com.farming.rental.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Service for signed, short-lived access tokens
+ * The token carries the user id, role and phone number, so any instance can
+ * authorize a request without a session or a database read.
+ * Stream tickets are the same claims with a chat stream audience and a lifetime of seconds;
+ * they are only accepted when opening the chat event stream.
+ */
+@Service
+@Slf4j
+public class JwtService {
+
+    private static final String ROLE_CLAIM = "role";
+    private static final String PHONE_CLAIM = "phone";
+    private static final String STREAM_AUDIENCE = "chat-stream";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String DEV_PROFILE = "dev";
+
+    private final SecretKey key;
+    private final Duration accessTokenTtl;
+    private final Duration streamTicketTtl;
+
+    public JwtService(@Value("${jwt.secret:}") String secret,
+                      @Value("${jwt.access-token-ttl-minutes:15}") long accessTokenTtlMinutes,
+                      @Value("${jwt.stream-ticket-ttl-seconds:60}") long streamTicketTtlSeconds,
+                      Environment environment) {
+        if (secret.isBlank()) {
+            if (!environment.acceptsProfiles(Profiles.of(DEV_PROFILE))) {
+                throw new IllegalStateException("jwt.secret is not set. Set JWT_SECRET to a base64 key of at least "
+                    + MIN_SECRET_BYTES + " bytes, or run with the dev profile for a random key.");
+            }
+            log.warn("jwt.secret is not set, using a random key. Tokens will not survive a restart.");
+            this.key = Jwts.SIG.HS256.key().build();
+        } else {
+            byte[] bytes = Decoders.BASE64.decode(secret);
+            if (bytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("jwt.secret is " + bytes.length * 8 + " bits; at least "
+                    + MIN_SECRET_BYTES * 8 + " are required");
+            }
+            this.key = Keys.hmacShaKeyFor(bytes);
+        }
+        this.accessTokenTtl = Duration.ofMinutes(accessTokenTtlMinutes);
+        this.streamTicketTtl = Duration.ofSeconds(streamTicketTtlSeconds);
+    }
+
+    /**
+     * Issue an access token for a user
+     */
+    public String createAccessToken(User user) {
+        return sign(user.getId(), user.getRole(), user.getPhoneNumber(), null, accessTokenTtl);
+    }
+
+    /**
+     * Issue a stream ticket for an authenticated caller
+     */
+    public String createStreamTicket(AuthenticatedUser user) {
+        return sign(user.getId(), user.getRole(), user.getPhoneNumber(), STREAM_AUDIENCE, streamTicketTtl);
+    }
+
+    /**
+     * Verify an access token and read the caller from its claims. Empty if invalid or expired.
+     */
+    public Optional<AuthenticatedUser> parseAccessToken(String token) {
+        return parse(token, null);
+    }
+
+    /**
+     * Verify a stream ticket and read the caller from its claims. Access tokens are not accepted.
+     */
+    public Optional<AuthenticatedUser> parseStreamTicket(String ticket) {
+        return parse(ticket, STREAM_AUDIENCE);
+    }
+
+    public long getAccessTokenTtlSeconds() {
+        return accessTokenTtl.toSeconds();
+    }
+
+    public long getStreamTicketTtlSeconds() {
+        return streamTicketTtl.toSeconds();
+    }
+
+    private String sign(String userId, User.UserRole role, String phoneNumber, String audience, Duration ttl) {
+        Instant now = Instant.now();
+        var builder = Jwts.builder()
+            .subject(userId)
+            .claim(ROLE_CLAIM, role.name())
+            .claim(PHONE_CLAIM, phoneNumber)
+            .issuedAt(Date.from(now))
+            .expiration(Date.from(now.plus(ttl)));
+        if (audience != null) {
+            builder.audience().add(audience).and();
+        }
+        return builder.signWith(key).compact();
+    }
+
+    /**
+     * Verify a token meant for the given audience; null means an access token, which has none
+     */
+    private Optional<AuthenticatedUser> parse(String token, String audience) {
+        try {
+            Claims claims = Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+            Set<String> tokenAudience = claims.getAudience() == null ? Set.of() : claims.getAudience();
+            if (audience == null ? !tokenAudience.isEmpty() : !tokenAudience.contains(audience)) {
+                log.debug("Rejected token for audience {}", tokenAudience);
+                return Optional.empty();
+            }
+            return Optional.of(new AuthenticatedUser(claims.getSubject(),
+                User.UserRole.valueOf(claims.get(ROLE_CLAIM, String.class)),
+                claims.get(PHONE_CLAIM, String.class)));
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.farming.rental.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Image store in a directory of the local file system (images.upload-dir).
+ * Only suitable for a single instance, or a directory shared by all instances.
+ */
+@Component
+@ConditionalOnProperty(name = "images.storage", havingValue = "local", matchIfMissing = true)
+public class LocalImageStore implements ImageStore {
+
+    private final Path root;
+
+    public LocalImageStore(@Value("${images.upload-dir:uploads/equipment}") String uploadDir) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public StoredImage find(String fileName) throws IOException {
+        Path file = locate(fileName);
+        if (file == null || !Files.isRegularFile(file)) {
+            return null;
+        }
+        return new LocalImage(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    @Override
+    public boolean exists(String fileName) {
+        Path file = locate(fileName);
+        return file != null && Files.isRegularFile(file);
+    }
+
+    @Override
+    public void put(String fileName, Path source) throws IOException {
+        Path target = locate(fileName);
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid image file name: " + fileName);
+        }
+        Files.createDirectories(root);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored by a concurrent upload of the same content
+        }
+    }
+
+    /**
+     * Path of a file directly inside the store's directory, or null if the name points elsewhere
+     */
+    private Path locate(String fileName) {
+        try {
+            Path file = root.resolve(fileName).normalize();
+            return root.equals(file.getParent()) ? file : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class LocalImage implements StoredImage {
+
+        private final Path file;
+        private final long length;
+        private final long lastModified;
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+
+        @Override
+        public void transferTo(long position, long count, WritableByteChannel out) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long end = position + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, out);
+                    if (sent <= 0) {
+                        break;
+                    }
+                    position += sent;
+                }
+            }
+        }
+    }
+}
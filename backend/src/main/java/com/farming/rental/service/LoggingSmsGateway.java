@@ -0,0 +1,22 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.SmsMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * SMS gateway for development and testing: writes messages to the log instead of sending them
+ */
+@Component
+@ConditionalOnProperty(name = "sms.gateway", havingValue = "log", matchIfMissing = true)
+@Slf4j
+public class LoggingSmsGateway implements SmsGateway {
+
+    @Override
+    public void send(List<SmsMessage> batch) {
+        batch.forEach(message -> log.info("SMS to {}: {}", message.getPhoneNumber(), message.getText()));
+    }
+}
@@ -0,0 +1,156 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.MessageBucket;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Bucketed chat message storage
+ * Messages of a booking are appended to the open bucket with $push; a new bucket is
+ * started once the open one holds chat.storage.bucket-size messages. Concurrent first messages
+ * or a rollover race can leave two buckets open, so readers never assume a newer message is in
+ * a newer bucket.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageBucketStore {
+
+    private static final Comparator<MessageBucket.Entry> CHRONOLOGICAL =
+        Comparator.comparing(MessageBucket.Entry::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(MessageBucket.Entry::getMessageId);
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+
+    @Value("${chat.storage.bucket-size:100}")
+    private int bucketSize;
+
+    /**
+     * Append a message to the open bucket of its booking, starting a new bucket when needed
+     */
+    public Message append(Message message) {
+        message.setId(new ObjectId().toHexString());
+        Query openBucket = new Query(Criteria.where("bookingId").is(message.getBookingId())
+            .and("count").lt(bucketSize));
+        Update push = new Update()
+            .push("messages", MessageBucket.Entry.of(message))
+            .inc("count", 1)
+            .max("lastAt", message.getCreatedAt())
+            .setOnInsert("firstAt", message.getCreatedAt());
+        mongoTemplate.upsert(openBucket, push, MessageBucket.class);
+        return message;
+    }
+
+    /**
+     * Get the messages of a booking, oldest first.
+     * With a since message id, only the buckets written to at or after that message are read.
+     */
+    public List<Message> find(String bookingId, String sinceMessageId) {
+        Query query = new Query(Criteria.where("bookingId").is(bookingId))
+            .with(Sort.by(Sort.Direction.DESC, "firstAt"));
+        MessageBucket.Entry since = null;
+        if (sinceMessageId != null) {
+            since = findEntry(bookingId, sinceMessageId);
+            if (since == null) {
+                throw new RuntimeException("Unknown message cursor");
+            }
+            // last_at only grows, so any bucket holding a later message qualifies, whichever bucket it was pushed to
+            if (since.getCreatedAt() != null) {
+                query.addCriteria(Criteria.where("lastAt").gte(since.getCreatedAt()));
+            }
+        }
+
+        List<MessageBucket.Entry> entries = new ArrayList<>();
+        mongoTemplate.find(query, MessageBucket.class).forEach(bucket -> entries.addAll(bucket.getMessages()));
+        if (since != null) {
+            MessageBucket.Entry cursor = since;
+            entries.removeIf(entry -> CHRONOLOGICAL.compare(entry, cursor) <= 0);
+        }
+
+        entries.sort(CHRONOLOGICAL);
+        return toMessages(bookingId, entries);
+    }
+
+    /**
+     * Load a single entry of a booking's conversation, without the rest of its bucket
+     */
+    private MessageBucket.Entry findEntry(String bookingId, String messageId) {
+        Query query = new Query(Criteria.where("bookingId").is(bookingId).and("messages.message_id").is(messageId));
+        query.fields().elemMatch("messages", Criteria.where("message_id").is(messageId));
+        MessageBucket bucket = mongoTemplate.findOne(query, MessageBucket.class);
+        return bucket == null || bucket.getMessages().isEmpty() ? null : bucket.getMessages().get(0);
+    }
+
+    /**
+     * Mark the messages of a booking sent to a user as read. Returns the number of messages marked.
+     * Buckets are flipped one at a time with findAndModify; each returns the bucket as it was before
+     * the update, so only messages this call flipped are counted even when another request races it.
+     */
+    public long markRead(String bookingId, String userId) {
+        Query unread = new Query(Criteria.where("bookingId").is(bookingId)
+            .and("messages").elemMatch(Criteria.where("receiver_id").is(userId).and("is_read").is(false)));
+        Update flip = new Update().set("messages.$[m].is_read", true)
+            .filterArray(Criteria.where("m.receiver_id").is(userId).and("m.is_read").is(false));
+
+        long marked = 0;
+        MessageBucket before;
+        while ((before = mongoTemplate.findAndModify(unread, flip, MessageBucket.class)) != null) {
+            marked += before.getMessages().stream()
+                .filter(entry -> userId.equals(entry.getReceiverId()) && !Boolean.TRUE.equals(entry.getIsRead()))
+                .count();
+        }
+        return marked;
+    }
+
+    /**
+     * Count unread messages per receiver and booking, for rebuilding unread counters
+     */
+    public Map<String, Map<String, Long>> countUnread() {
+        Query unread = new Query(Criteria.where("messages").elemMatch(Criteria.where("is_read").is(false)));
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        try (Stream<MessageBucket> buckets = mongoTemplate.stream(unread, MessageBucket.class)) {
+            buckets.forEach(bucket -> bucket.getMessages().stream()
+                .filter(entry -> !Boolean.TRUE.equals(entry.getIsRead()))
+                .forEach(entry -> counts.computeIfAbsent(entry.getReceiverId(), id -> new HashMap<>())
+                    .merge(bucket.getBookingId(), 1L, Long::sum)));
+        }
+        return counts;
+    }
+
+    /**
+     * Turn bucket entries into messages, loading the participants in a single query
+     */
+    private List<Message> toMessages(String bookingId, List<MessageBucket.Entry> entries) {
+        Set<String> userIds = new HashSet<>();
+        entries.forEach(entry -> {
+            userIds.add(entry.getSenderId());
+            userIds.add(entry.getReceiverId());
+        });
+        Map<String, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+
+        return entries.stream()
+            .map(entry -> new Message(entry.getMessageId(), bookingId, users.get(entry.getSenderId()),
+                users.get(entry.getReceiverId()), entry.getContent(), entry.getCreatedAt(), entry.getIsRead()))
+            .toList();
+    }
+}
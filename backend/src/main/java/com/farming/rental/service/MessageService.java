@@ -0,0 +1,170 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.UnreadCounter;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.MessageRepository;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service for booking chat messages
+ * Keeps a per-user unread counter up to date as messages are sent and read,
+ * so unread badges never count the messages collection.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageService {
+
+    private final MessageRepository messageRepository;
+    private final ReferenceBatchLoader referenceBatchLoader;
+    private final ChatPushService chatPushService;
+    private final MessageBucketStore messageBucketStore;
+    private final MongoTemplate mongoTemplate;
+
+    // Store messages in per-booking buckets instead of one document per message
+    @Value("${chat.storage.bucketed:false}")
+    private boolean bucketed;
+
+    /**
+     * Build the unread counters from existing messages the first time the application starts with them
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillUnreadCounters() {
+        if (mongoTemplate.exists(new Query(), UnreadCounter.class)) {
+            return;
+        }
+        Map<String, Map<String, Long>> counts = bucketed ? messageBucketStore.countUnread() : countUnreadMessages();
+        if (counts.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UnreadCounter.class);
+        counts.forEach((userId, byBooking) -> {
+            Update update = new Update().inc("total", byBooking.values().stream().mapToLong(Long::longValue).sum());
+            byBooking.forEach((bookingId, count) -> update.inc("byBooking." + bookingId, count));
+            bulk.upsert(new Query(Criteria.where("_id").is(userId)), update);
+        });
+        bulk.execute();
+        log.info("Unread counters backfilled for {} users", counts.size());
+    }
+
+    private Map<String, Map<String, Long>> countUnreadMessages() {
+        // Raw documents keep the receiver DBRef unresolved, so the backfill is one scan of unread messages
+        Query unread = new Query(Criteria.where("is_read").is(false));
+        unread.fields().include("receiver_id", "booking_id");
+
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        for (Document doc : mongoTemplate.find(unread, Document.class, "messages")) {
+            if (doc.get("receiver_id") instanceof DBRef receiver && doc.getString("booking_id") != null) {
+                counts.computeIfAbsent(receiver.getId().toString(), id -> new HashMap<>())
+                    .merge(doc.getString("booking_id"), 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Get the messages of a booking, oldest first.
+     * With a since message id, only the messages after it are returned.
+     */
+    public List<Message> getMessages(String bookingId, String sinceMessageId) {
+        if (bucketed) {
+            return messageBucketStore.find(bookingId, sinceMessageId);
+        }
+        Criteria criteria = Criteria.where("bookingId").is(bookingId);
+        if (sinceMessageId != null) {
+            // Only the cursor's position is needed; projecting it leaves the sender and receiver unresolved
+            Query cursor = new Query(Criteria.where("id").is(sinceMessageId).and("bookingId").is(bookingId));
+            cursor.fields().include("createdAt");
+            Message since = mongoTemplate.findOne(cursor, Message.class);
+            if (since == null) {
+                throw new RuntimeException("Unknown message cursor");
+            }
+            // created_at can repeat, so the id breaks ties in the same order as the sort.
+            // Only equality on ids is converted by the mapper, so the ObjectId is passed for $gt.
+            criteria.orOperator(
+                Criteria.where("createdAt").gt(since.getCreatedAt()),
+                Criteria.where("createdAt").is(since.getCreatedAt()).and("id").gt(new ObjectId(since.getId())));
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "createdAt", "id"));
+        return referenceBatchLoader.find(query, Message.class);
+    }
+
+    /**
+     * Save a message, count it as unread for the receiver and push it to both participants
+     */
+    public Message sendMessage(String bookingId, User sender, User receiver, String content) {
+        Message message = new Message();
+        message.setBookingId(bookingId);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent(content);
+        message.setCreatedAt(LocalDateTime.now());
+        message.setIsRead(false);
+
+        Message saved = bucketed ? messageBucketStore.append(message) : messageRepository.save(message);
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(receiver.getId())),
+            new Update().inc("total", 1).inc("byBooking." + bookingId, 1), UnreadCounter.class);
+        chatPushService.publish(saved);
+        return saved;
+    }
+
+    /**
+     * Mark every message of a booking sent to the user as read, in one update.
+     * Returns the number of messages marked.
+     */
+    public long markRead(String bookingId, User user) {
+        long marked;
+        if (bucketed) {
+            marked = messageBucketStore.markRead(bookingId, user.getId());
+        } else {
+            marked = mongoTemplate.updateMulti(
+                new Query(Criteria.where("bookingId").is(bookingId)
+                    .and("receiver").is(user.getId())
+                    .and("isRead").is(false)),
+                new Update().set("isRead", true),
+                Message.class
+            ).getModifiedCount();
+        }
+
+        if (marked > 0) {
+            // Decrement by exactly what was marked, so messages arriving meanwhile stay counted
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(user.getId())),
+                new Update().inc("total", -marked).inc("byBooking." + bookingId, -marked), UnreadCounter.class);
+        }
+        return marked;
+    }
+
+    /**
+     * Get the unread message counts of a user, in total and per booking
+     */
+    public UnreadCounter getUnreadCounts(String userId) {
+        UnreadCounter counter = mongoTemplate.findById(userId, UnreadCounter.class);
+        if (counter == null) {
+            counter = new UnreadCounter();
+            counter.setId(userId);
+        }
+        counter.setTotal(Math.max(counter.getTotal(), 0));
+        counter.getByBooking().values().removeIf(count -> count <= 0);
+        return counter;
+    }
+}
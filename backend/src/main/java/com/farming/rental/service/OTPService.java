@@ -1,39 +1,86 @@
 package com.farming.rental.service;
 
+import com.farming.rental.dto.SmsMessage;
 import com.farming.rental.entity.OTPVerification;
 import com.farming.rental.entity.User;
+import com.farming.rental.exception.RateLimitExceededException;
 import com.farming.rental.repository.OTPVerificationRepository;
 import com.farming.rental.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
-import java.util.Random;
 
 /**
  * Service for OTP-based authentication
- * Handles OTP generation, verification, and user authentication
+ * Handles OTP generation, verification, and user authentication.
+ * Requests are rate limited per phone number and client IP in memory before MongoDB is touched,
+ * and a code is locked after too many wrong guesses.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class OTPService {
 
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     private final OTPVerificationRepository otpRepository;
     private final UserRepository userRepository;
-    
+    private final MongoTemplate mongoTemplate;
+    private final SmsDispatcher smsDispatcher;
+
     // OTP validity period in minutes
-    private static final int OTP_VALIDITY_MINUTES = 10;
+    private final int validityMinutes;
+    private final int maxAttempts;
+
+    private final TokenBucketRateLimiter phoneLimiter;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter verifyIpLimiter;
+
+    public OTPService(OTPVerificationRepository otpRepository,
+                      UserRepository userRepository,
+                      MongoTemplate mongoTemplate,
+                      SmsDispatcher smsDispatcher,
+                      @Value("${otp.validity-minutes:10}") int validityMinutes,
+                      @Value("${otp.max-attempts:5}") int maxAttempts,
+                      @Value("${otp.rate-limit.phone.capacity:3}") int phoneCapacity,
+                      @Value("${otp.rate-limit.phone.refill-seconds:120}") long phoneRefillSeconds,
+                      @Value("${otp.rate-limit.ip.capacity:20}") int ipCapacity,
+                      @Value("${otp.rate-limit.ip.refill-seconds:6}") long ipRefillSeconds,
+                      @Value("${otp.rate-limit.verify-ip.capacity:30}") int verifyIpCapacity,
+                      @Value("${otp.rate-limit.verify-ip.refill-seconds:2}") long verifyIpRefillSeconds) {
+        this.otpRepository = otpRepository;
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.smsDispatcher = smsDispatcher;
+        this.validityMinutes = validityMinutes;
+        this.maxAttempts = maxAttempts;
+        this.phoneLimiter = new TokenBucketRateLimiter(phoneCapacity, phoneRefillSeconds);
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillSeconds);
+        this.verifyIpLimiter = new TokenBucketRateLimiter(verifyIpCapacity, verifyIpRefillSeconds);
+    }
 
     /**
-     * Generate and send OTP to phone number
-     * In production, integrate with SMS gateway (Twilio, AWS SNS, etc.)
+     * Generate OTP and queue it for delivery by SMS
      */
-    public OTPVerification generateOTP(String phoneNumber) {
+    public OTPVerification generateOTP(String phoneNumber, String clientIp) {
         log.info("Generating OTP for phone: {}", phoneNumber);
-        
+        // IP first, so one client cycling through phone numbers is stopped early
+        checkRateLimit(ipLimiter, clientIp, "Too many OTP requests. Please try again later.");
+        checkRateLimit(phoneLimiter, phoneNumber, "Too many OTP requests for this number. Please try again later.");
+
         // For development/testing: use fixed OTP for known test accounts to simplify login
         String otpCode;
         if ("9876543210".equals(phoneNumber) || "9111111111".equals(phoneNumber) || "9000000000".equals(phoneNumber)) {
@@ -41,73 +88,117 @@ public class OTPService {
         } else {
             otpCode = generateSixDigitOTP();
         }
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(OTP_VALIDITY_MINUTES);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(validityMinutes);
 
-        OTPVerification otp = otpRepository.findByPhoneNumber(phoneNumber)
-            .orElse(new OTPVerification());
-        
+        // A single upsert replaces any previous code and resets its attempts
+        Query byPhone = new Query(Criteria.where("phoneNumber").is(phoneNumber));
+        Update update = new Update()
+            .set("otpCode", otpCode)
+            .set("isVerified", false)
+            .set("attempts", 0)
+            .set("createdAt", now)
+            .set("expiresAt", expiresAt);
+        try {
+            mongoTemplate.upsert(byPhone, update, OTPVerification.class);
+        } catch (DuplicateKeyException e) {
+            // Lost an insert race on the unique phone number index; the document exists now
+            mongoTemplate.upsert(byPhone, update, OTPVerification.class);
+        }
+
+        // Delivered by the SMS workers; the request does not wait for the gateway
+        smsDispatcher.enqueue(new SmsMessage(phoneNumber,
+            "Your verification code is " + otpCode + ". It is valid for " + validityMinutes + " minutes."));
+        log.info("OTP generated for {} (Valid until {})", phoneNumber, expiresAt);
+
+        OTPVerification otp = new OTPVerification();
         otp.setPhoneNumber(phoneNumber);
         otp.setOtpCode(otpCode);
         otp.setIsVerified(false);
+        otp.setAttempts(0);
+        otp.setCreatedAt(now);
         otp.setExpiresAt(expiresAt);
-        
-        otpRepository.save(otp);
-        
-        // TODO: Integrate SMS gateway to send OTP
-        log.info("OTP generated for {}: {} (Valid until {})", phoneNumber, otpCode, expiresAt);
-        
         return otp;
     }
 
     /**
      * Verify OTP and authenticate user
      */
-    public Optional<User> verifyOTP(String phoneNumber, String otpCode) {
+    public Optional<User> verifyOTP(String phoneNumber, String otpCode, String clientIp) {
         log.info("Verifying OTP for phone: {}", phoneNumber);
-        
-        Optional<OTPVerification> otpVerification = otpRepository.findByPhoneNumber(phoneNumber);
-        
-        if (otpVerification.isEmpty()) {
-            log.warn("OTP not found for phone: {}", phoneNumber);
+        checkRateLimit(verifyIpLimiter, clientIp, "Too many attempts. Please try again later.");
+
+        // Count the attempt and read the code in one step; only a live, unlocked code matches
+        Query live = new Query(Criteria.where("phoneNumber").is(phoneNumber)
+            .and("isVerified").is(false)
+            .and("expiresAt").gt(LocalDateTime.now())
+            .and("attempts").not().gte(maxAttempts));
+        OTPVerification otp = mongoTemplate.findAndModify(live, new Update().inc("attempts", 1),
+            FindAndModifyOptions.options().returnNew(true), OTPVerification.class);
+
+        if (otp == null) {
+            Optional<OTPVerification> current = otpRepository.findByPhoneNumber(phoneNumber);
+            if (current.isPresent() && current.get().isValidForVerification()) {
+                log.warn("OTP locked after {} attempts for phone: {}", maxAttempts, phoneNumber);
+                long retryAfter = Duration.between(LocalDateTime.now(), current.get().getExpiresAt()).toSeconds();
+                throw new RateLimitExceededException("Too many attempts. Please request a new OTP.", Math.max(1, retryAfter));
+            }
+            log.warn("No valid OTP for phone: {}", phoneNumber);
             return Optional.empty();
         }
-        
-        OTPVerification otp = otpVerification.get();
-        
-        // Check if OTP has expired
-        if (otp.isExpired()) {
-            log.warn("OTP expired for phone: {}", phoneNumber);
+
+        // Verify OTP code
+        if (!MessageDigest.isEqual(otp.getOtpCode().getBytes(StandardCharsets.UTF_8),
+                otpCode.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Invalid OTP code for phone: {} (attempt {})", phoneNumber, otp.getAttempts());
             return Optional.empty();
         }
-        
-        // Verify OTP code
-        if (!otp.getOtpCode().equals(otpCode)) {
-            log.warn("Invalid OTP code for phone: {}", phoneNumber);
+
+        // Mark OTP as verified; a code can only be used once
+        long marked = mongoTemplate.updateFirst(
+            new Query(Criteria.where("id").is(otp.getId()).and("isVerified").is(false)),
+            new Update().set("isVerified", true),
+            OTPVerification.class).getModifiedCount();
+        if (marked == 0) {
+            log.warn("OTP already used for phone: {}", phoneNumber);
             return Optional.empty();
         }
-        
-        // Mark OTP as verified
-        otp.setIsVerified(true);
-        otpRepository.save(otp);
-        
+
         // Get user by phone number
         Optional<User> user = userRepository.findByPhoneNumber(phoneNumber);
-        
+
         if (user.isPresent()) {
             log.info("User authenticated via OTP: {}", phoneNumber);
             return user;
         }
-        
+
         log.warn("No user found for phone: {}", phoneNumber);
         return Optional.empty();
     }
 
+    /**
+     * Drop rate limit buckets that have fully refilled
+     */
+    @Scheduled(fixedDelayString = "${otp.rate-limit.evict-interval-ms:60000}")
+    public void evictIdleRateLimits() {
+        phoneLimiter.evictIdle();
+        ipLimiter.evictIdle();
+        verifyIpLimiter.evictIdle();
+    }
+
+    private void checkRateLimit(TokenBucketRateLimiter limiter, String key, String message) {
+        long retryAfter = limiter.tryAcquire(key);
+        if (retryAfter > 0) {
+            log.warn("Rate limited OTP request for {}", key);
+            throw new RateLimitExceededException(message, retryAfter);
+        }
+    }
+
     /**
      * Generate 6-digit random OTP
      */
     private String generateSixDigitOTP() {
-        Random random = new Random();
-        int otp = 100000 + random.nextInt(900000);
+        int otp = 100000 + RANDOM.nextInt(900000);
         return String.valueOf(otp);
     }
 
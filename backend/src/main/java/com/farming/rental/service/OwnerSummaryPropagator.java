@@ -0,0 +1,108 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.OwnerSummary;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.UserRepository;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Propagates owner profile changes to the owner summary embedded in their equipment
+ * A profile update rewrites the summary right away. Summaries that are missing or no longer
+ * match their owner, e.g. because that write failed, are repaired by a periodic reconcile.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OwnerSummaryPropagator {
+
+    private final EquipmentService equipmentService;
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Write an owner's current summary to all of their equipment.
+     * A failure is logged rather than thrown; the profile change is saved and reconcile picks it up.
+     */
+    public void propagate(User owner) {
+        if (owner.getId() == null || owner.getRole() != User.UserRole.OWNER) {
+            return;
+        }
+        try {
+            equipmentService.updateOwnerSummaries(List.of(OwnerSummary.of(owner)));
+        } catch (RuntimeException e) {
+            log.error("Owner summary propagation failed for {}, left to reconcile", owner.getId(), e);
+        }
+    }
+
+    /**
+     * Rewrite every owner summary that is missing or differs from the owner's profile
+     * Groups equipment by owner in the database, so only one row per owner comes back.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${owner-summary.reconcile-interval-ms:600000}",
+        fixedDelayString = "${owner-summary.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        // Null or missing; $addToSet below leaves those out
+        Document missingSummary = new Document("$cond", List.of(new Document("$eq",
+            Arrays.asList(new Document("$ifNull", Arrays.asList("$owner_summary", null)), null)), 1, 0));
+        List<Document> pipeline = List.of(new Document("$group", new Document("_id", "$owner_id")
+            .append("summaries", new Document("$addToSet", "$owner_summary"))
+            .append("missing", new Document("$sum", missingSummary))));
+
+        Map<String, Document> groups = new HashMap<>();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Equipment.class))
+            .aggregate(pipeline).allowDiskUse(true)
+            .forEach(group -> {
+                String ownerId = ownerIdOf(group.get("_id"));
+                if (ownerId != null) {
+                    groups.put(ownerId, group);
+                }
+            });
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        List<OwnerSummary> stale = new ArrayList<>();
+        userRepository.findAllById(groups.keySet()).forEach(owner -> {
+            OwnerSummary current = OwnerSummary.of(owner);
+            Document group = groups.get(owner.getId());
+            boolean outdated = group.get("missing", Number.class).longValue() > 0
+                || group.getList("summaries", Document.class, List.of()).stream()
+                    .map(summary -> mongoTemplate.getConverter().read(OwnerSummary.class, summary))
+                    .anyMatch(summary -> !Objects.equals(summary, current));
+            if (outdated) {
+                stale.add(current);
+            }
+        });
+        if (!stale.isEmpty()) {
+            equipmentService.updateOwnerSummaries(stale);
+            log.info("Reconciled owner summaries for {} owners", stale.size());
+        }
+    }
+
+    private static String ownerIdOf(Object reference) {
+        if (reference instanceof DBRef ref) {
+            return ref.getId().toString();
+        }
+        if (reference instanceof Document doc && doc.get("$id") != null) {
+            return doc.get("$id").toString();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.PlatformStats;
+import com.farming.rental.entity.User;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Service for the materialized admin dashboard statistics
+ * Counters are adjusted with $inc as users, equipment and bookings change, so reading them
+ * is a single document lookup. A rebuild from the collections corrects any drift.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlatformStatsService {
+
+    private static final Set<Booking.BookingStatus> EARNING_STATUSES =
+        EnumSet.of(Booking.BookingStatus.CONFIRMED, Booking.BookingStatus.COMPLETED);
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Build the counters on first start
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (mongoTemplate.findById(PlatformStats.GLOBAL_ID, PlatformStats.class) == null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Get the current counters
+     */
+    public PlatformStats getStats() {
+        PlatformStats stats = mongoTemplate.findById(PlatformStats.GLOBAL_ID, PlatformStats.class);
+        return stats != null ? stats : rebuild();
+    }
+
+    /**
+     * Recompute all counters from the collections, using count queries and an aggregation for revenue
+     */
+    public PlatformStats rebuild() {
+        long startedAt = System.currentTimeMillis();
+
+        PlatformStats stats = new PlatformStats();
+        stats.setTotalUsers(mongoTemplate.count(new Query(), User.class));
+        stats.setTotalEquipment(mongoTemplate.count(new Query(), Equipment.class));
+        stats.setPendingEquipment(mongoTemplate.count(
+            new Query(Criteria.where("isApproved").is(false)), Equipment.class));
+        stats.setTotalBookings(mongoTemplate.count(new Query(), Booking.class));
+
+        TypedAggregation<Booking> revenue = Aggregation.newAggregation(Booking.class,
+            Aggregation.match(Criteria.where("status").in(EARNING_STATUSES)),
+            Aggregation.group().sum(ConvertOperators.valueOf("totalAmount").convertToDecimal()).as("total"));
+        Document result = mongoTemplate.aggregate(revenue, Document.class).getUniqueMappedResult();
+        // $sum is a plain integer 0 when no amount was summed
+        Object total = result != null ? result.get("total") : null;
+        stats.setTotalRevenue(total instanceof Decimal128 decimal ? decimal.bigDecimalValue()
+            : total instanceof Number number ? new BigDecimal(number.toString())
+            : BigDecimal.ZERO);
+        stats.setRebuiltAt(LocalDateTime.now());
+
+        PlatformStats saved = mongoTemplate.save(stats);
+        log.info("Platform stats rebuilt in {} ms", System.currentTimeMillis() - startedAt);
+        return saved;
+    }
+
+    /**
+     * Periodically recompute the counters to correct drift from failed or concurrent updates
+     */
+    @Scheduled(cron = "${platform-stats.reconcile-cron:0 0 3 * * *}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    public void userRegistered() {
+        increment(new Update().inc("totalUsers", 1));
+    }
+
+    public void equipmentAdded() {
+        increment(new Update().inc("totalEquipment", 1).inc("pendingEquipment", 1));
+    }
+
+    public void equipmentApproved() {
+        increment(new Update().inc("pendingEquipment", -1));
+    }
+
+    public void equipmentDeleted(boolean wasApproved) {
+        Update update = new Update().inc("totalEquipment", -1);
+        if (!wasApproved) {
+            update.inc("pendingEquipment", -1);
+        }
+        increment(update);
+    }
+
+    public void bookingCreated() {
+        increment(new Update().inc("totalBookings", 1));
+    }
+
+    /**
+     * Adjust revenue when a booking moves into or out of a confirmed/completed status
+     */
+    public void bookingStatusChanged(Booking.BookingStatus previous, Booking booking) {
+        boolean earnedBefore = EARNING_STATUSES.contains(previous);
+        boolean earnsNow = EARNING_STATUSES.contains(booking.getStatus());
+        if (earnedBefore == earnsNow || booking.getTotalAmount() == null) {
+            return;
+        }
+        BigDecimal amount = earnsNow ? booking.getTotalAmount() : booking.getTotalAmount().negate();
+        increment(new Update().inc("totalRevenue", amount));
+    }
+
+    /**
+     * Apply a counter update. Without a stats document nothing is written; the next read rebuilds it.
+     */
+    private void increment(Update update) {
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(PlatformStats.GLOBAL_ID)),
+                update, PlatformStats.class);
+        } catch (Exception e) {
+            // Stats must never fail the business operation; the reconcile job fixes the counters
+            log.warn("Failed to update platform stats: {}", e.getMessage());
+        }
+    }
+}
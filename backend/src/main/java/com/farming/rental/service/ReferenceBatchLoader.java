@@ -0,0 +1,168 @@
+package com.farming.rental.service;
+
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads entity lists with their DBRefs resolved in batches
+ * Instead of one lookup per reference, all referenced ids of a result list are gathered
+ * and each referenced collection is fetched once with $in, level by level
+ * (e.g. bookings -> equipment and farmers -> owners). Fetched documents are memoized
+ * for the rest of the current request.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceBatchLoader {
+
+    private static final String MEMO_ATTRIBUTE = ReferenceBatchLoader.class.getName() + ".memo";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Run a query and return the entities with all references resolved
+     */
+    public <T> List<T> find(Query query, Class<T> type) {
+        List<Document> roots = mongoTemplate.find(mapped(query, type), Document.class, mongoTemplate.getCollectionName(type));
+        resolve(roots);
+        return roots.stream()
+            .map(doc -> mongoTemplate.getConverter().read(type, doc))
+            .toList();
+    }
+
+    /**
+     * Run a paged query and return the entities with all references resolved
+     */
+    public <T> Page<T> find(Query query, Pageable pageable, Class<T> type) {
+        long total = mongoTemplate.count(Query.of(query).limit(0).skip(0), type);
+        List<T> content = find(Query.of(query).with(pageable), type);
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Map property names and reference ids of a query against the entity, since the raw
+     * Document read below would otherwise send them to Mongo untranslated
+     */
+    private Query mapped(Query query, Class<?> type) {
+        MongoPersistentEntity<?> entity = mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(type);
+        QueryMapper mapper = new QueryMapper(mongoTemplate.getConverter());
+        BasicQuery mapped = new BasicQuery(mapper.getMappedObject(query.getQueryObject(), entity),
+            mapper.getMappedFields(query.getFieldsObject(), entity));
+        mapped.setSortObject(mapper.getMappedSort(query.getSortObject(), entity));
+        return mapped.skip(query.getSkip()).limit(query.getLimit());
+    }
+
+    /**
+     * Replace every DBRef inside the given documents with the referenced document
+     */
+    private void resolve(List<Document> roots) {
+        Map<String, Map<Object, Document>> memo = memo();
+        int references = 0;
+        int queries = 0;
+
+        List<Document> level = roots;
+        while (!level.isEmpty()) {
+            // Gather the ids still missing from the memo, per referenced collection
+            Map<String, Set<Object>> missing = new HashMap<>();
+            for (Document doc : level) {
+                for (DBRef ref : collectRefs(doc)) {
+                    references++;
+                    Map<Object, Document> known = memo.computeIfAbsent(ref.getCollectionName(), c -> new HashMap<>());
+                    if (!known.containsKey(ref.getId())) {
+                        missing.computeIfAbsent(ref.getCollectionName(), c -> new HashSet<>()).add(ref.getId());
+                    }
+                }
+            }
+
+            List<Document> fetched = new ArrayList<>();
+            for (Map.Entry<String, Set<Object>> entry : missing.entrySet()) {
+                Map<Object, Document> known = memo.get(entry.getKey());
+                List<Document> docs = mongoTemplate.find(
+                    new Query(Criteria.where("_id").in(entry.getValue())), Document.class, entry.getKey());
+                queries++;
+                entry.getValue().forEach(id -> known.put(id, null)); // Remember dangling references too
+                docs.forEach(doc -> known.put(doc.get("_id"), doc));
+                fetched.addAll(docs);
+            }
+            level = fetched;
+        }
+
+        Set<Document> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        roots.forEach(doc -> inline(doc, memo, visited));
+
+        if (references > 0) {
+            log.debug("Batch-resolved {} references with {} queries ({} saved)",
+                references, queries, references - queries);
+        }
+    }
+
+    private List<DBRef> collectRefs(Object value) {
+        List<DBRef> refs = new ArrayList<>();
+        if (value instanceof DBRef ref) {
+            refs.add(ref);
+        } else if (value instanceof Document doc) {
+            doc.values().forEach(v -> refs.addAll(collectRefs(v)));
+        } else if (value instanceof List<?> list) {
+            list.forEach(v -> refs.addAll(collectRefs(v)));
+        }
+        return refs;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object inline(Object value, Map<String, Map<Object, Document>> memo, Set<Document> visited) {
+        if (value instanceof DBRef ref) {
+            Document target = memo.getOrDefault(ref.getCollectionName(), Map.of()).get(ref.getId());
+            return target != null ? inline(target, memo, visited) : null;
+        }
+        if (value instanceof Document doc) {
+            if (visited.add(doc)) {
+                doc.replaceAll((key, v) -> inline(v, memo, visited));
+            }
+            return doc;
+        }
+        if (value instanceof List<?> list) {
+            ((List<Object>) list).replaceAll(v -> inline(v, memo, visited));
+        }
+        return value;
+    }
+
+    /**
+     * Per-request memo of fetched documents; a fresh one when not running inside a request
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<Object, Document>> memo() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        Object memo = attributes.getAttribute(MEMO_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<String, Map<Object, Document>>();
+            attributes.setAttribute(MEMO_ATTRIBUTE, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<String, Map<Object, Document>>) memo;
+    }
+}
@@ -0,0 +1,96 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.AuthTokens;
+import com.farming.rental.entity.RefreshToken;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Service for issuing and rotating refresh tokens
+ * Only a hash of each token is stored. A token is removed when used, and a new one is issued in its place.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${jwt.refresh-token-ttl-days:30}")
+    private long refreshTokenTtlDays;
+
+    /**
+     * Issue an access token and a new refresh token for a user
+     */
+    public AuthTokens issue(User user) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        mongoTemplate.insert(new RefreshToken(hash(refreshToken), user.getId(),
+            LocalDateTime.now().plusDays(refreshTokenTtlDays)));
+        return new AuthTokens(user, jwtService.createAccessToken(user), jwtService.getAccessTokenTtlSeconds(), refreshToken);
+    }
+
+    /**
+     * Exchange a refresh token for a new token pair. The presented token can not be used again.
+     */
+    public AuthTokens refresh(String refreshToken) {
+        RefreshToken stored = mongoTemplate.findAndRemove(byToken(refreshToken), RefreshToken.class);
+        if (stored == null || stored.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Invalid refresh token");
+        }
+        User user = userRepository.findById(stored.getUserId())
+            .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+        if (Boolean.TRUE.equals(user.getIsBlocked())) {
+            throw new RuntimeException("Account blocked");
+        }
+        return issue(user);
+    }
+
+    /**
+     * Revoke a refresh token (logout)
+     */
+    public void revoke(String refreshToken) {
+        mongoTemplate.remove(byToken(refreshToken), RefreshToken.class);
+    }
+
+    /**
+     * Revoke every refresh token of a user, e.g. when the user is blocked
+     */
+    public void revokeAll(String userId) {
+        mongoTemplate.remove(new Query(Criteria.where("userId").is(userId)), RefreshToken.class);
+    }
+
+    private Query byToken(String refreshToken) {
+        return new Query(Criteria.where("_id").is(hash(refreshToken)));
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
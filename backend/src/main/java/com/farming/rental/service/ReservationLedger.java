@@ -0,0 +1,178 @@
+package com.farming.rental.service;
+
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.EquipmentReservation;
+import com.mongodb.DBRef;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-equipment reservation ledger in MongoDB
+ * A slot is only pushed when no existing slot overlaps it, so two instances
+ * racing for the same equipment cannot both reserve the same hours.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationLedger {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoTemplate mongoTemplate;
+
+    // In-process striping keeps same-equipment requests on this instance from contending in Mongo
+    private final Lock[] locks = createLocks();
+
+    /**
+     * Get the in-process lock guarding reservations for an equipment
+     */
+    public Lock lockFor(String equipmentId) {
+        return locks[Math.floorMod(equipmentId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Atomically reserve a slot. Returns the updated ledger, or empty if the slot overlaps an existing one.
+     */
+    public Optional<EquipmentReservation> reserve(String equipmentId, EquipmentReservation.Slot slot) {
+        Query freeSlot = new Query(Criteria.where("_id").is(equipmentId)
+            .and("slots").not().elemMatch(overlapping(slot.getStart(), slot.getEnd())));
+        Update push = new Update().push("slots", slot);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            EquipmentReservation ledger = mongoTemplate.findAndModify(freeSlot, push,
+                FindAndModifyOptions.options().returnNew(true), EquipmentReservation.class);
+            if (ledger != null) {
+                return Optional.of(ledger);
+            }
+            if (mongoTemplate.exists(byEquipment(equipmentId), EquipmentReservation.class)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(mongoTemplate.insert(
+                    new EquipmentReservation(equipmentId, new ArrayList<>(List.of(slot)))));
+            } catch (DuplicateKeyException e) {
+                // Another request created the ledger first; retry the conditional push against it
+                log.debug("Reservation ledger for equipment {} created concurrently, retrying", equipmentId);
+            }
+        }
+        throw new RuntimeException("Could not reserve equipment, please try again");
+    }
+
+    /**
+     * Check in Mongo whether any reserved slot overlaps the given hour range
+     */
+    public boolean hasConflict(String equipmentId, long startHour, long endHour) {
+        return mongoTemplate.exists(new Query(Criteria.where("_id").is(equipmentId)
+            .and("slots").elemMatch(overlapping(startHour, endHour))), EquipmentReservation.class);
+    }
+
+    /**
+     * Release the slot held by a booking
+     */
+    public void release(String equipmentId, String bookingId) {
+        mongoTemplate.updateFirst(byEquipment(equipmentId),
+            new Update().pull("slots", new Document("booking_id", bookingId)),
+            EquipmentReservation.class);
+    }
+
+    /**
+     * Load the ledger of an equipment
+     */
+    public Optional<EquipmentReservation> load(String equipmentId) {
+        return Optional.ofNullable(mongoTemplate.findById(equipmentId, EquipmentReservation.class));
+    }
+
+    /**
+     * Load every ledger. One small document per equipment, no references to resolve.
+     */
+    public List<EquipmentReservation> loadAll() {
+        return mongoTemplate.findAll(EquipmentReservation.class);
+    }
+
+    /**
+     * Backfill the ledger from the bookings collection on first start
+     */
+    public void backfillIfNeeded() {
+        if (mongoTemplate.exists(new Query(), EquipmentReservation.class)) {
+            return;
+        }
+        backfillFromBookings();
+    }
+
+    /**
+     * Idempotently add the slots of all non-cancelled bookings to the ledger
+     */
+    public void backfillFromBookings() {
+        long startedAt = System.currentTimeMillis();
+
+        // Raw documents keep the equipment DBRef unresolved, so the backfill is one collection scan
+        Query query = new Query(Criteria.where("status").ne(Booking.BookingStatus.CANCELLED.name()));
+        query.fields().include("equipment_id", "start_date", "end_date", "start_time", "end_time");
+
+        ConversionService conversionService = mongoTemplate.getConverter().getConversionService();
+        Map<String, List<EquipmentReservation.Slot>> slotsByEquipment = new HashMap<>();
+        int count = 0;
+
+        for (Document doc : mongoTemplate.find(query, Document.class, "bookings")) {
+            Object ref = doc.get("equipment_id");
+            Date start = doc.getDate("start_date");
+            if (!(ref instanceof DBRef) || start == null) {
+                continue;
+            }
+            EquipmentReservation.Slot slot = EquipmentReservation.Slot.of(doc.get("_id").toString(),
+                conversionService.convert(start, LocalDate.class),
+                conversionService.convert(doc.getDate("end_date"), LocalDate.class),
+                conversionService.convert(doc.getDate("start_time"), LocalDateTime.class),
+                conversionService.convert(doc.getDate("end_time"), LocalDateTime.class));
+            slotsByEquipment.computeIfAbsent(((DBRef) ref).getId().toString(), id -> new ArrayList<>()).add(slot);
+            count++;
+        }
+
+        if (!slotsByEquipment.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EquipmentReservation.class);
+            slotsByEquipment.forEach((equipmentId, slots) -> bulk.upsert(byEquipment(equipmentId),
+                new Update().addToSet("slots").each(slots.toArray())));
+            bulk.execute();
+        }
+        log.info("Reservation ledger backfilled: {} bookings across {} equipment in {} ms",
+            count, slotsByEquipment.size(), System.currentTimeMillis() - startedAt);
+    }
+
+    private Criteria overlapping(long startHour, long endHour) {
+        return Criteria.where("start_hour").lte(endHour).and("end_hour").gte(startHour);
+    }
+
+    private Query byEquipment(String equipmentId) {
+        return new Query(Criteria.where("_id").is(equipmentId));
+    }
+
+    private static Lock[] createLocks() {
+        Lock[] stripes = new Lock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        return stripes;
+    }
+}
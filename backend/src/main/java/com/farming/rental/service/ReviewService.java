@@ -1,16 +1,42 @@
 package com.farming.rental.service;
 
-import com.farming.rental.entity.Booking;
+import com.farming.rental.dto.CursorPage;
+import com.farming.rental.dto.RatingSummary;
+import com.farming.rental.dto.ReviewView;
 import com.farming.rental.entity.Equipment;
 import com.farming.rental.entity.Review;
 import com.farming.rental.entity.User;
 import com.farming.rental.repository.ReviewRepository;
+import com.mongodb.DBRef;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -19,6 +45,22 @@ public class ReviewService {
 
     private final ReviewRepository reviewRepository;
     private final BookingService bookingService;
+    private final EquipmentService equipmentService;
+    private final MongoTemplate mongoTemplate;
+
+    public static final int MAX_REVIEW_PAGE_SIZE = 50;
+
+    /**
+     * Sort orders of a review listing. Every order ends with _id so the keyset is unique.
+     */
+    public enum ReviewSort {
+        NEWEST,   // _id descending
+        HIGHEST,  // rating descending, newest first within a rating
+        LOWEST    // rating ascending, oldest first within a rating (same index, read backwards)
+    }
+
+    @Value("${ratings.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
 
     public Review addReview(Review review) {
         log.info("Adding review for equipment: {} by farmer: {}", 
@@ -28,25 +70,225 @@ public class ReviewService {
             throw new RuntimeException("Invalid rating. Must be between 1 and 5.");
         }
 
-        // Check if farmer has a completed booking for this equipment
-        List<Booking> bookings = bookingService.getFarmerBookings(review.getFarmer());
-        boolean hasCompletedBooking = bookings.stream()
-            .anyMatch(b -> b.getEquipment().getId().equals(review.getEquipment().getId()) 
-                        && b.getStatus() == Booking.BookingStatus.COMPLETED);
+        // Each completed booking of this equipment allows one review
+        String farmerId = review.getFarmer().getId();
+        String equipmentId = review.getEquipment().getId();
+        String bookingId = bookingService.claimBookingForReview(farmerId, equipmentId);
 
-        if (!hasCompletedBooking) {
+        if (bookingId == null) {
+            if (bookingService.hasCompletedBooking(farmerId, equipmentId)) {
+                throw new RuntimeException("You have already reviewed this rental.");
+            }
             throw new RuntimeException("You can only review equipment you have successfully rented and returned.");
         }
 
+        review.setBookingId(bookingId);
         review.setCreatedAt(LocalDateTime.now());
-        return reviewRepository.save(review);
+        Review saved;
+        try {
+            saved = reviewRepository.save(review);
+        } catch (DuplicateKeyException e) {
+            // The unique booking index already holds a review for it; the claim stays
+            throw new RuntimeException("You have already reviewed this rental.");
+        } catch (RuntimeException e) {
+            bookingService.releaseReviewClaim(bookingId);
+            throw e;
+        }
+        equipmentService.applyReviewRating(saved.getEquipment().getId(), saved.getRating(), 1);
+        return saved;
+    }
+
+    /**
+     * Get a page of an equipment's reviews using keyset pagination, as slim views.
+     * Raw documents are read so no references are resolved; reviewer names come from one query per page.
+     */
+    public CursorPage<ReviewView> getReviewPage(String equipmentId, ReviewSort sort, String cursor, int size) {
+        if (!ObjectId.isValid(equipmentId)) {
+            return new CursorPage<>(List.of(), null, false, null);
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_REVIEW_PAGE_SIZE);
+
+        Query query = new Query(Criteria.where("equipment_id").is(new DBRef("equipment", new ObjectId(equipmentId))));
+        if (cursor != null && !cursor.isEmpty()) {
+            query.addCriteria(afterCursor(sort, cursor));
+        }
+        query.with(reviewSort(sort)).limit(limit + 1);
+        query.fields().include("rating", "comment", "created_at", "farmer_id");
+
+        List<Document> docs = mongoTemplate.find(query, Document.class, "reviews");
+        boolean hasMore = docs.size() > limit;
+        if (hasMore) {
+            docs = docs.subList(0, limit);
+        }
+
+        Map<String, String> farmerNames = farmerNames(docs);
+        ConversionService conversionService = mongoTemplate.getConverter().getConversionService();
+        List<ReviewView> items = docs.stream().map(doc -> {
+            String farmerId = doc.get("farmer_id") instanceof DBRef farmer ? farmer.getId().toString() : null;
+            return new ReviewView(doc.getObjectId("_id").toHexString(), doc.getInteger("rating"),
+                doc.getString("comment"), conversionService.convert(doc.getDate("created_at"), LocalDateTime.class),
+                farmerId, farmerNames.get(farmerId));
+        }).toList();
+
+        String nextCursor = hasMore ? encodeCursor(sort, docs.get(docs.size() - 1)) : null;
+        return new CursorPage<>(items, nextCursor, hasMore, null);
+    }
+
+    /**
+     * Get the rating summary of an equipment from its stored aggregates
+     */
+    public RatingSummary getRatingSummary(String equipmentId) {
+        Query query = new Query(Criteria.where("id").is(equipmentId));
+        query.fields().include("ratingSum", "ratingCount", "ratingHistogram");
+        Equipment equipment = mongoTemplate.findOne(query, Equipment.class);
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int star = 1; star <= 5; star++) {
+            Long count = equipment != null && equipment.getRatingHistogram() != null
+                ? equipment.getRatingHistogram().get(String.valueOf(star)) : null;
+            histogram.put(String.valueOf(star), count != null ? count : 0L);
+        }
+        if (equipment == null) {
+            return new RatingSummary(equipmentId, 0, 0, histogram);
+        }
+        return new RatingSummary(equipmentId,
+            equipment.getRatingSum() != null ? equipment.getRatingSum() : 0,
+            equipment.getRatingCount() != null ? equipment.getRatingCount() : 0,
+            histogram);
+    }
+
+    private Map<String, String> farmerNames(List<Document> reviews) {
+        Set<Object> farmerIds = new HashSet<>();
+        reviews.forEach(doc -> {
+            if (doc.get("farmer_id") instanceof DBRef farmer) {
+                farmerIds.add(farmer.getId());
+            }
+        });
+        if (farmerIds.isEmpty()) {
+            return Map.of();
+        }
+        Query query = new Query(Criteria.where("_id").in(farmerIds));
+        query.fields().include("full_name");
+        Map<String, String> names = new HashMap<>();
+        mongoTemplate.find(query, Document.class, "users")
+            .forEach(user -> names.put(user.get("_id").toString(), user.getString("full_name")));
+        return names;
     }
 
-    public List<Review> getEquipmentReviews(String equipmentId) {
-        return reviewRepository.findByEquipmentId(equipmentId);
+    private Sort reviewSort(ReviewSort sort) {
+        return switch (sort) {
+            case NEWEST -> Sort.by(Sort.Direction.DESC, "_id");
+            case HIGHEST -> Sort.by(Sort.Direction.DESC, "rating", "_id");
+            case LOWEST -> Sort.by(Sort.Direction.ASC, "rating", "_id");
+        };
+    }
+
+    private Criteria afterCursor(ReviewSort sort, String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        if (parts.length != 3 || !parts[0].equals(sort.name()) || !ObjectId.isValid(parts[2])) {
+            throw new RuntimeException("Invalid cursor");
+        }
+        ObjectId lastId = new ObjectId(parts[2]);
+
+        return switch (sort) {
+            case NEWEST -> Criteria.where("_id").lt(lastId);
+            case HIGHEST -> {
+                int lastRating = parseRating(parts[1]);
+                yield new Criteria().orOperator(
+                    Criteria.where("rating").lt(lastRating),
+                    Criteria.where("rating").is(lastRating).and("_id").lt(lastId));
+            }
+            case LOWEST -> {
+                int lastRating = parseRating(parts[1]);
+                yield new Criteria().orOperator(
+                    Criteria.where("rating").gt(lastRating),
+                    Criteria.where("rating").is(lastRating).and("_id").gt(lastId));
+            }
+        };
+    }
+
+    private int parseRating(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private String encodeCursor(ReviewSort sort, Document last) {
+        String key = sort == ReviewSort.NEWEST ? "" : String.valueOf(last.getInteger("rating"));
+        String raw = sort.name() + "|" + key + "|" + last.getObjectId("_id").toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
     public void deleteReview(String reviewId) {
-        reviewRepository.deleteById(reviewId);
+        // The raw document carries the rating and equipment id without resolving the references
+        Document removed = mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(reviewId)),
+            Document.class, "reviews");
+        if (removed != null && removed.get("equipment_id") instanceof DBRef equipment
+                && removed.get("rating") instanceof Integer rating) {
+            equipmentService.applyReviewRating(equipment.getId().toString(), rating, -1);
+        }
+        if (removed != null && removed.getString("booking_id") != null) {
+            bookingService.releaseReviewClaim(removed.getString("booking_id"));
+        }
+    }
+
+    /**
+     * Recompute the rating aggregates of all equipment from the reviews, a batch of equipment at a time,
+     * to correct drift from failed or partial updates
+     */
+    @Scheduled(cron = "${ratings.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRatings() {
+        long startedAt = System.currentTimeMillis();
+        Query allIds = new Query().with(Sort.by("id"));
+        allIds.fields().include("id");
+
+        int reconciled = 0;
+        List<String> batch = new ArrayList<>(reconcileBatchSize);
+        try (Stream<Equipment> equipment = mongoTemplate.stream(allIds, Equipment.class)) {
+            for (Equipment item : (Iterable<Equipment>) equipment::iterator) {
+                batch.add(item.getId());
+                if (batch.size() == reconcileBatchSize) {
+                    reconciled += reconcileBatch(batch);
+                    batch.clear();
+                }
+            }
+        }
+        reconciled += reconcileBatch(batch);
+        log.info("Reconciled ratings of {} equipment in {} ms", reconciled, System.currentTimeMillis() - startedAt);
+    }
+
+    private int reconcileBatch(List<String> equipmentIds) {
+        if (equipmentIds.isEmpty()) {
+            return 0;
+        }
+        GroupOperation group = Aggregation.group("equipment").count().as("count").sum("rating").as("sum");
+        for (int star = 1; star <= 5; star++) {
+            group = group.sum(ConditionalOperators.when(Criteria.where("rating").is(star)).then(1).otherwise(0))
+                .as("star" + star);
+        }
+        TypedAggregation<Review> aggregation = Aggregation.newAggregation(Review.class,
+            Aggregation.match(Criteria.where("equipment").in(equipmentIds)), group);
+
+        // Equipment without reviews are reset to zero
+        Map<String, RatingSummary> summaries = new HashMap<>();
+        equipmentIds.forEach(id -> summaries.put(id, new RatingSummary(id, 0, 0, new HashMap<>())));
+        for (Document result : mongoTemplate.aggregate(aggregation, Document.class)) {
+            String equipmentId = ((DBRef) result.get("_id")).getId().toString();
+            Map<String, Long> histogram = new HashMap<>();
+            for (int star = 1; star <= 5; star++) {
+                histogram.put(String.valueOf(star), result.get("star" + star, Number.class).longValue());
+            }
+            summaries.put(equipmentId, new RatingSummary(equipmentId,
+                result.get("sum", Number.class).longValue(), result.get("count", Number.class).longValue(), histogram));
+        }
+        equipmentService.updateRatingSummaries(summaries.values());
+        return summaries.size();
     }
 }
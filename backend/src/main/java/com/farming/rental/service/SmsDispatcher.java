@@ -0,0 +1,193 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.SmsMessage;
+import com.farming.rental.entity.SmsDeadLetter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Asynchronous SMS delivery
+ * Messages are put on a bounded queue and sent by a small worker pool in batches of
+ * whatever is waiting. Failed messages are retried with exponential backoff and stored
+ * as dead letters once sms.max-attempts is reached. Dead letters never hold verification codes.
+ */
+@Service
+@Slf4j
+public class SmsDispatcher {
+
+    // Verification codes and any other run of digits long enough to be a secret
+    private static final Pattern CODE = Pattern.compile("\\d{4,}");
+
+    private final SmsGateway smsGateway;
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<SmsMessage> queue;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    // Messages waiting out a retry backoff; identity based, the same text may be sent twice
+    private final Set<SmsMessage> pendingRetries = Collections.synchronizedSet(
+        Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private ExecutorService workerPool;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean running;
+
+    public SmsDispatcher(SmsGateway smsGateway,
+                         MongoTemplate mongoTemplate,
+                         @Value("${sms.queue-capacity:10000}") int queueCapacity,
+                         @Value("${sms.workers:2}") int workers,
+                         @Value("${sms.batch-size:50}") int batchSize,
+                         @Value("${sms.max-attempts:5}") int maxAttempts,
+                         @Value("${sms.retry-backoff-ms:1000}") long retryBackoffMs) {
+        this.smsGateway = smsGateway;
+        this.mongoTemplate = mongoTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        AtomicInteger threadNumber = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "sms-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "sms-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.submit(this::work);
+        }
+    }
+
+    /**
+     * Queue a message for delivery. Returns immediately; throws if the queue is full.
+     */
+    public void enqueue(SmsMessage message) {
+        if (!queue.offer(message)) {
+            log.warn("SMS queue full, rejecting message to {}", message.getPhoneNumber());
+            throw new RuntimeException("Unable to send SMS right now. Please try again later.");
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getPendingRetryCount() {
+        return pendingRetries.size();
+    }
+
+    private void work() {
+        List<SmsMessage> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                SmsMessage first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Send whatever else is already waiting with it; a lone message is not held back
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<SmsMessage> batch) {
+        try {
+            smsGateway.send(batch);
+        } catch (Exception e) {
+            log.warn("SMS batch of {} failed: {}", batch.size(), e.getMessage());
+            batch.forEach(message -> retry(message, e));
+        }
+    }
+
+    private void retry(SmsMessage message, Exception error) {
+        message.setAttempts(message.getAttempts() + 1);
+        if (message.getAttempts() >= maxAttempts || !running) {
+            deadLetter(message, error.getMessage());
+            return;
+        }
+        long delay = retryBackoffMs << (message.getAttempts() - 1);
+        pendingRetries.add(message);
+        retryScheduler.schedule(() -> {
+            // stop() may already have dead-lettered it
+            if (pendingRetries.remove(message) && !queue.offer(message)) {
+                deadLetter(message, "Queue full on retry");
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void deadLetter(SmsMessage message, String error) {
+        log.error("Giving up on SMS to {} after {} attempts: {}", message.getPhoneNumber(), message.getAttempts(), error);
+        try {
+            mongoTemplate.insert(new SmsDeadLetter(null, message.getPhoneNumber(), redact(message.getText()),
+                message.getAttempts(), error, LocalDateTime.now()));
+        } catch (Exception e) {
+            log.error("Failed to store SMS dead letter", e);
+        }
+    }
+
+    static String redact(String text) {
+        return text == null ? null : CODE.matcher(text).replaceAll("******");
+    }
+
+    /**
+     * Stop the workers and make one last attempt at anything still queued.
+     * Messages still waiting out a retry backoff are stored as dead letters instead of being dropped.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        retryScheduler.shutdownNow();
+        workerPool.shutdown();
+        workerPool.awaitTermination(5, TimeUnit.SECONDS);
+        retryScheduler.awaitTermination(1, TimeUnit.SECONDS);
+
+        List<SmsMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            deliver(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+
+        List<SmsMessage> waiting;
+        synchronized (pendingRetries) {
+            waiting = new ArrayList<>(pendingRetries);
+            pendingRetries.clear();
+        }
+        waiting.forEach(message -> deadLetter(message, "Shut down before retry"));
+    }
+}
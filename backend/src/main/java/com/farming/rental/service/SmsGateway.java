@@ -0,0 +1,18 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.SmsMessage;
+
+import java.util.List;
+
+/**
+ * Outbound SMS provider (Twilio, AWS SNS, ...)
+ * Called from the SMS dispatcher's worker threads, never on a request thread.
+ */
+public interface SmsGateway {
+
+    /**
+     * Send a batch of messages. Throws if the batch could not be handed to the provider,
+     * in which case every message of the batch is retried.
+     */
+    void send(List<SmsMessage> batch);
+}
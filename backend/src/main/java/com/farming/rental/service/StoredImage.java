@@ -0,0 +1,29 @@
+package com.farming.rental.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A file read from an image store
+ */
+public interface StoredImage {
+
+    long getLength();
+
+    long getLastModified();
+
+    /**
+     * The file on this machine's disk, or null if the store is not local.
+     * Local files can be sent to the client without being read into the JVM.
+     */
+    Path getFile();
+
+    InputStream openStream() throws IOException;
+
+    /**
+     * Write count bytes starting at position to the channel
+     */
+    void transferTo(long position, long count, WritableByteChannel out) throws IOException;
+}
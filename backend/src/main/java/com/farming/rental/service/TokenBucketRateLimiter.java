@@ -0,0 +1,60 @@
+package com.farming.rental.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory token bucket per key (phone number, client IP, ...)
+ * Each bucket holds up to capacity tokens and regains one every refill interval.
+ * Buckets are updated with compare-and-set, so concurrent requests never block each other.
+ */
+public class TokenBucketRateLimiter {
+
+    private record State(double tokens, long updatedAt) {}
+
+    private final ConcurrentHashMap<String, AtomicReference<State>> buckets = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final long nanosPerToken;
+
+    public TokenBucketRateLimiter(int capacity, long refillSeconds) {
+        this.capacity = capacity;
+        this.nanosPerToken = TimeUnit.SECONDS.toNanos(refillSeconds);
+    }
+
+    /**
+     * Take a token for a key. Returns 0 if one was taken, otherwise the seconds until one is available.
+     */
+    public long tryAcquire(String key) {
+        AtomicReference<State> bucket = buckets.computeIfAbsent(key,
+            k -> new AtomicReference<>(new State(capacity, System.nanoTime())));
+        while (true) {
+            State current = bucket.get();
+            long now = System.nanoTime();
+            double tokens = refilled(current, now);
+            if (tokens < 1) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toSeconds((long) ((1 - tokens) * nanosPerToken)));
+            }
+            if (bucket.compareAndSet(current, new State(tokens - 1, now))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they behave exactly like a new bucket.
+     * A request racing with the removal may get one extra token at most.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> refilled(bucket.get(), now) >= capacity);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private double refilled(State state, long now) {
+        return Math.min(capacity, state.tokens() + (double) (now - state.updatedAt()) / nanosPerToken);
+    }
+}
@@ -20,6 +20,9 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final OwnerSummaryPropagator ownerSummaryPropagator;
+    private final PlatformStatsService platformStatsService;
+    private final RefreshTokenService refreshTokenService;
 
     /**
      * Register new user
@@ -44,7 +47,9 @@ public class UserService {
         user.setIsActive(true);
         user.setIsBlocked(false);
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        platformStatsService.userRegistered();
+        return saved;
     }
 
     /**
@@ -69,7 +74,9 @@ public class UserService {
      */
     public User updateUserProfile(User user) {
         log.info("Updating user profile: {}", user.getId());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        ownerSummaryPropagator.propagate(saved);
+        return saved;
     }
 
     /**
@@ -80,7 +87,10 @@ public class UserService {
         User user = userRepository.findById(userId)
             .orElseThrow(() -> new RuntimeException("User not found"));
         user.setIsBlocked(true);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Access tokens still in flight expire within minutes; no new ones can be issued
+        refreshTokenService.revokeAll(userId);
+        return saved;
     }
 
     /**
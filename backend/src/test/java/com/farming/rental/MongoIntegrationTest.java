@@ -0,0 +1,29 @@
+package com.farming.rental;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base class for tests against a real MongoDB
+ * One container (a single-node replica set) is shared by all test classes, so the Spring
+ * context is cached between them. Tests are skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {
+    "jwt.secret=dGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtdGVzdC1zZWNyZXQtMDEyMzQ1Njc4OQ==",
+    "logging.level.com.farming.rental=WARN"
+})
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoIntegrationTest {
+
+    @ServiceConnection
+    protected static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    static {
+        if (DockerClientFactory.instance().isDockerAvailable()) {
+            MONGO.start();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.farming.rental;
+
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.User;
+import org.bson.types.ObjectId;
+
+import java.math.BigDecimal;
+
+/**
+ * Unsaved entities for tests; phone numbers and emails are unique per call
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    public static User user(User.UserRole role) {
+        String unique = new ObjectId().toHexString();
+        User user = new User();
+        user.setPhoneNumber(unique);
+        user.setEmail(unique + "@test.local");
+        user.setFullName("Test " + role);
+        user.setRole(role);
+        user.setIsActive(true);
+        return user;
+    }
+
+    public static Equipment equipment(User owner) {
+        Equipment equipment = new Equipment();
+        equipment.setName("Harvester");
+        equipment.setCategory("Harvester");
+        equipment.setOwner(owner);
+        equipment.setPricePerDay(BigDecimal.valueOf(1000));
+        equipment.setIsApproved(true);
+        equipment.setIsAvailable(true);
+        return equipment;
+    }
+}
@@ -0,0 +1,113 @@
+package com.farming.rental.controller;
+
+import com.farming.rental.service.ImageStorageService;
+import com.farming.rental.service.ImageVariantService;
+import com.farming.rental.service.LocalImageStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ImageControllerTest {
+
+    private static final String HASH = "ab".repeat(32);
+    private static final String URL = ImageStorageService.PUBLIC_PATH + HASH + ".png";
+
+    @TempDir
+    Path dir;
+
+    private ImageVariantService imageVariantService;
+    private MockMvc mockMvc;
+    private byte[] body;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        LocalImageStore store = new LocalImageStore(dir.toString());
+        imageVariantService = new ImageVariantService(store, dir.toString(), 1, 1);
+        ImageStorageService imageStorageService = new ImageStorageService(store, imageVariantService, dir.toString(), 1000);
+        mockMvc = MockMvcBuilders.standaloneSetup(new ImageController(imageStorageService)).build();
+
+        body = new byte[1000];
+        Arrays.fill(body, (byte) 7);
+        body[0] = 1;
+        Files.write(dir.resolve(HASH + ".png"), body);
+        Files.write(dir.resolve("legacy.png"), body);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void contentAddressedImageIsImmutable() throws Exception {
+        mockMvc.perform(get(URL))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+            .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+            .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+            .andExpect(content().bytes(body));
+    }
+
+    @Test
+    void legacyImageIsRevalidatedByItsHash() throws Exception {
+        mockMvc.perform(get(ImageStorageService.PUBLIC_PATH + "legacy.png"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, public"))
+            .andExpect(header().string(HttpHeaders.ETAG, containsString("\"")));
+    }
+
+    @Test
+    void matchingEntityTagIsNotModified() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\""))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-99"))
+            .andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-99/1000"))
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+            .andExpect(content().bytes(Arrays.copyOfRange(body, 0, 100)));
+    }
+
+    @Test
+    void rangeForAnOlderVersionGetsTheWholeFile() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=0-99").header(HttpHeaders.IF_RANGE, "\"other\""))
+            .andExpect(status().isOk())
+            .andExpect(content().bytes(body));
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws Exception {
+        mockMvc.perform(get(URL).header(HttpHeaders.RANGE, "bytes=5000-"))
+            .andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */1000"));
+    }
+
+    @Test
+    void missingAndHiddenFilesAreNotFound() throws Exception {
+        mockMvc.perform(get(ImageStorageService.PUBLIC_PATH + "missing.png"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get(ImageStorageService.PUBLIC_PATH + "..%5Clegacy.png"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get(ImageStorageService.PUBLIC_PATH + ".hidden.png"))
+            .andExpect(status().isNotFound());
+    }
+}
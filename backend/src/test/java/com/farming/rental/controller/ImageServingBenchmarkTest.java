@@ -0,0 +1,168 @@
+package com.farming.rental.controller;
+
+import com.farming.rental.service.ImageStorageService;
+import com.farming.rental.service.ImageVariantService;
+import com.farming.rental.service.LocalImageStore;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Requests per second of ImageController versus the static resource handler it replaced,
+ * through a real Tomcat, for full downloads and for browser revalidation.
+ * Run with mvn test -Pbenchmark; results are logged.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(classes = ImageServingBenchmarkTest.Config.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ImageServingBenchmarkTest {
+
+    private static final String LEGACY_PATH = "/legacy-uploads/";
+    private static final int CLIENTS = 16;
+    private static final long WARMUP_MS = 2_000;
+    private static final long MEASURE_MS = 5_000;
+
+    private static final Path DIR;
+
+    static {
+        try {
+            DIR = Files.createTempDirectory("image-benchmark");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({
+        ServletWebServerFactoryAutoConfiguration.class,
+        EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class
+    })
+    @Import({ImageController.class, ImageStorageService.class, ImageVariantService.class, LocalImageStore.class})
+    static class Config implements WebMvcConfigurer {
+
+        /**
+         * The way uploads were served before ImageController
+         */
+        @Override
+        public void addResourceHandlers(ResourceHandlerRegistry registry) {
+            registry.addResourceHandler(LEGACY_PATH + "**")
+                .addResourceLocations(DIR.toUri().toString())
+                .resourceChain(false);
+        }
+    }
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("images.upload-dir", DIR::toString);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void compareWithResourceHandler() throws Exception {
+        for (int size : new int[]{20 * 1024, 512 * 1024}) {
+            byte[] body = new byte[size];
+            new Random(size).nextBytes(body);
+            String fileName = String.format("%064x", size) + ".jpg";
+            Files.write(DIR.resolve(fileName), body);
+
+            for (String path : List.of(LEGACY_PATH, ImageStorageService.PUBLIC_PATH)) {
+                String handler = path.equals(LEGACY_PATH) ? "resource handler" : "ImageController";
+                URI uri = URI.create("http://localhost:" + port + path + fileName);
+                HttpResponse<byte[]> first = client.send(HttpRequest.newBuilder(uri).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+                assertThat(first.statusCode()).isEqualTo(200);
+                assertThat(first.body()).isEqualTo(body);
+
+                measure(handler + ", " + size / 1024 + " KB download", HttpRequest.newBuilder(uri).build(), 200);
+                measure(handler + ", " + size / 1024 + " KB revalidation", revalidation(uri, first.headers()), 304);
+            }
+        }
+    }
+
+    /**
+     * The conditional request a browser sends for a cached copy, using whichever validator was given
+     */
+    private static HttpRequest revalidation(URI uri, java.net.http.HttpHeaders headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri);
+        headers.firstValue(HttpHeaders.ETAG).ifPresent(etag -> request.header(HttpHeaders.IF_NONE_MATCH, etag));
+        headers.firstValue(HttpHeaders.LAST_MODIFIED)
+            .ifPresent(lastModified -> request.header(HttpHeaders.IF_MODIFIED_SINCE, lastModified));
+        return request.build();
+    }
+
+    private void measure(String what, HttpRequest request, int expectedStatus) throws Exception {
+        run(request, expectedStatus, WARMUP_MS);
+        long started = System.nanoTime();
+        long requests = run(request, expectedStatus, MEASURE_MS);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("{}: {} requests in {} ms ({} req/s)", what, requests, Math.round(seconds * 1000),
+            Math.round(requests / seconds));
+    }
+
+    /**
+     * Send the request from every client in a loop for the given time and return how many completed
+     */
+    private long run(HttpRequest request, int expectedStatus, long durationMs) throws Exception {
+        long deadline = System.currentTimeMillis() + durationMs;
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                counts.add(clients.submit(() -> {
+                    long count = 0;
+                    while (System.currentTimeMillis() < deadline) {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        assertThat(response.statusCode()).isEqualTo(expectedStatus);
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            long total = 0;
+            for (Future<Long> count : counts) {
+                total += count.get();
+            }
+            return total;
+        } finally {
+            clients.shutdown();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.farming.rental.controller.api;
+
+import com.farming.rental.repository.OTPVerificationRepository;
+import com.farming.rental.repository.UserRepository;
+import com.farming.rental.service.OTPService;
+import com.farming.rental.service.RefreshTokenService;
+import com.farming.rental.service.SmsDispatcher;
+import com.farming.rental.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Floods /api/auth/login through a real Tomcat and checks the OTP rate limits
+ * Persistence and SMS delivery are mocked; requests come from localhost, which Tomcat trusts as a
+ * proxy, so X-Forwarded-For stands in for the client address.
+ */
+@Slf4j
+@SpringBootTest(classes = AuthApiRateLimitTest.Config.class,
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {
+        "server.forward-headers-strategy=native",
+        "otp.rate-limit.ip.capacity=20",
+        "otp.rate-limit.ip.refill-seconds=3600",
+        "otp.rate-limit.phone.capacity=3",
+        "otp.rate-limit.phone.refill-seconds=3600"
+    })
+class AuthApiRateLimitTest {
+
+    @Configuration
+    @ImportAutoConfiguration({
+        ServletWebServerFactoryAutoConfiguration.class,
+        EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+        DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class,
+        HttpMessageConvertersAutoConfiguration.class,
+        JacksonAutoConfiguration.class
+    })
+    @Import({AuthApiController.class, OTPService.class})
+    static class Config {
+    }
+
+    @MockBean
+    private MongoTemplate mongoTemplate;
+
+    @MockBean
+    private OTPVerificationRepository otpVerificationRepository;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private SmsDispatcher smsDispatcher;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void floodFromOneClientIsCutOffWithRetryAfter() throws Exception {
+        List<Callable<ResponseEntity<String>>> flood = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String phone = String.valueOf(7_000_000_000L + i);
+            flood.add(() -> requestOtp(phone, "203.0.113.10"));
+        }
+
+        long started = System.nanoTime();
+        List<ResponseEntity<String>> responses = runInParallel(flood);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("{} OTP requests from one client in {} ms ({} req/s)",
+            responses.size(), Math.round(seconds * 1000), Math.round(responses.size() / seconds));
+
+        List<ResponseEntity<String>> accepted = responses.stream().filter(r -> r.getStatusCode().is2xxSuccessful()).toList();
+        List<ResponseEntity<String>> limited = responses.stream()
+            .filter(r -> r.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS).toList();
+        assertThat(accepted).hasSize(20);
+        assertThat(limited).hasSize(480);
+        assertThat(limited).allSatisfy(response ->
+            assertThat(Long.parseLong(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER))).isPositive());
+    }
+
+    @Test
+    void clientsBehindTheProxyHaveTheirOwnLimit() throws Exception {
+        List<Callable<ResponseEntity<String>>> clients = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String phone = String.valueOf(8_000_000_000L + i);
+            String clientIp = "198.51.100." + i;
+            clients.add(() -> requestOtp(phone, clientIp));
+        }
+
+        assertThat(runInParallel(clients)).allSatisfy(response ->
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK));
+    }
+
+    @Test
+    void oneNumberIsLimitedAcrossClients() throws Exception {
+        List<Callable<ResponseEntity<String>>> attempts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String clientIp = "192.0.2." + i;
+            attempts.add(() -> requestOtp("6000000000", clientIp));
+        }
+
+        List<ResponseEntity<String>> responses = runInParallel(attempts);
+        assertThat(responses).filteredOn(r -> r.getStatusCode().is2xxSuccessful()).hasSize(3);
+        assertThat(responses).filteredOn(r -> r.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS).hasSize(47);
+    }
+
+    private ResponseEntity<String> requestOtp(String phoneNumber, String clientIp) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", clientIp);
+        return restTemplate.exchange("/api/auth/login?phoneNumber=" + phoneNumber, HttpMethod.POST,
+            new HttpEntity<>(headers), String.class);
+    }
+
+    private static <T> List<T> runInParallel(List<Callable<T>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        try {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : pool.invokeAll(calls)) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.config.DecimalFieldMigration;
+import com.farming.rental.dto.CursorPage;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.EquipmentRepository;
+import com.farming.rental.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EquipmentCatalogTest extends MongoIntegrationTest {
+
+    @Autowired
+    private EquipmentService equipmentService;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DecimalFieldMigration decimalFieldMigration;
+
+    @Test
+    void pagesSkipItemsWithoutSortKeysUntilTheyAreMigrated() throws Exception {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        String category = "Catalog " + new ObjectId().toHexString();
+        List<String> listed = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Repeated prices and ratings exercise the id tie-break
+            listed.add(save(owner, category, BigDecimal.valueOf(1000 + (i % 3) * 100), BigDecimal.valueOf(i % 2 + 3)));
+        }
+        save(owner, category, null, BigDecimal.valueOf(4));
+        String unrated = save(owner, category, BigDecimal.valueOf(1200), null);
+
+        for (EquipmentService.CatalogSort sort : EquipmentService.CatalogSort.values()) {
+            assertThat(pageThrough(category, sort)).as(sort.name()).containsExactlyInAnyOrderElementsOf(listed);
+        }
+
+        decimalFieldMigration.run();
+        listed.add(unrated);
+        for (EquipmentService.CatalogSort sort : EquipmentService.CatalogSort.values()) {
+            assertThat(pageThrough(category, sort)).as(sort.name()).containsExactlyInAnyOrderElementsOf(listed);
+        }
+    }
+
+    private List<String> pageThrough(String category, EquipmentService.CatalogSort sort) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Equipment> page = equipmentService.getCatalogPage(category, sort, cursor, 2, false);
+            page.getItems().forEach(item -> ids.add(item.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        Set<String> unique = ids.stream().collect(Collectors.toSet());
+        assertThat(unique).hasSameSizeAs(ids);
+        return ids;
+    }
+
+    private String save(User owner, String category, BigDecimal pricePerDay, BigDecimal rating) {
+        Equipment equipment = TestData.equipment(owner);
+        equipment.setCategory(category);
+        equipment.setPricePerDay(pricePerDay);
+        equipment.setRating(rating);
+        return equipmentRepository.save(equipment).getId();
+    }
+}
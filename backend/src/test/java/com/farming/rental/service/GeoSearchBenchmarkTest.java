@@ -0,0 +1,117 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.dto.NearbyEquipmentDTO;
+import com.farming.rental.entity.Equipment;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Latency of the bounded geo search over a synthetic catalog of 1M machines spread across India
+ * Run with mvn test -Pbenchmark; results are logged.
+ */
+@Slf4j
+@Tag("benchmark")
+class GeoSearchBenchmarkTest extends MongoIntegrationTest {
+
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int SEARCHES = 2_000;
+    private static final String SYNTHETIC = "Synthetic benchmark machine";
+    private static final String[] CATEGORIES = {"Tractor", "Harvester", "Plough", "Seeder", "Sprayer", "Tiller"};
+
+    @Autowired
+    private EquipmentService equipmentService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void boundedSearchOverOneMillionItems() {
+        Random random = new Random(2024);
+        seedCatalog(random);
+        try {
+            search("radius only", random, false, false);
+            search("radius and category", random, true, false);
+            search("radius, category and price", random, true, true);
+        } finally {
+            mongoTemplate.remove(new Query(Criteria.where("name").is(SYNTHETIC)), Equipment.class);
+        }
+    }
+
+    private void seedCatalog(Random random) {
+        long started = System.nanoTime();
+        for (int inserted = 0; inserted < CATALOG_SIZE; inserted += BATCH_SIZE) {
+            List<Equipment> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                Equipment equipment = new Equipment();
+                equipment.setName(SYNTHETIC);
+                equipment.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                equipment.setPricePerDay(BigDecimal.valueOf(500 + random.nextInt(19_500)));
+                equipment.setCoordinates(new double[]{68 + random.nextDouble() * 29, 8 + random.nextDouble() * 27});
+                equipment.setIsApproved(random.nextInt(10) > 0);
+                equipment.setIsAvailable(random.nextInt(5) > 0);
+                batch.add(equipment);
+            }
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Equipment.class).insert(batch).execute();
+        }
+        log.info("Seeded {} machines in {} s", CATALOG_SIZE, (System.nanoTime() - started) / 1_000_000_000);
+    }
+
+    private void search(String label, Random random, boolean byCategory, boolean byPrice) {
+        long[] latencies = new long[SEARCHES];
+        long results = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            double lat = 10 + random.nextDouble() * 23;
+            double lng = 70 + random.nextDouble() * 25;
+            double radiusKm = 10 + random.nextInt(90);
+            String category = byCategory ? CATEGORIES[random.nextInt(CATEGORIES.length)] : null;
+            BigDecimal minPrice = byPrice ? BigDecimal.valueOf(2_000) : null;
+            BigDecimal maxPrice = byPrice ? BigDecimal.valueOf(8_000) : null;
+
+            long started = System.nanoTime();
+            List<NearbyEquipmentDTO> found = equipmentService.searchNearby(lat, lng, radiusKm, category, minPrice, maxPrice, 20);
+            latencies[i] = System.nanoTime() - started;
+            results += found.size();
+
+            assertThat(found).hasSizeLessThanOrEqualTo(20);
+            assertThat(found).isSortedAccordingTo((a, b) -> Double.compare(a.getDistanceKm(), b.getDistanceKm()));
+            assertThat(found).allSatisfy(result -> {
+                Equipment equipment = result.getEquipment();
+                assertThat(result.getDistanceKm()).isLessThanOrEqualTo(radiusKm);
+                assertThat(equipment.getIsApproved()).isTrue();
+                assertThat(equipment.getIsAvailable()).isTrue();
+                if (category != null) {
+                    assertThat(equipment.getCategory()).isEqualTo(category);
+                }
+                if (byPrice) {
+                    assertThat(equipment.getPricePerDay()).isBetween(minPrice, maxPrice);
+                }
+            });
+        }
+
+        Arrays.sort(latencies);
+        double totalSeconds = Arrays.stream(latencies).sum() / 1e9;
+        log.info("{}: {} searches, {} results on average, {} searches/s, p50 {} ms, p95 {} ms, p99 {} ms",
+            label, SEARCHES, results / SEARCHES, Math.round(SEARCHES / totalSeconds),
+            millis(latencies[SEARCHES / 2]), millis(latencies[SEARCHES * 95 / 100]), millis(latencies[SEARCHES * 99 / 100]));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,61 @@
+package com.farming.rental.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ImageVariantServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private ImageVariantService imageVariantService;
+
+    @AfterEach
+    void shutdown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void concurrentRequestsForAMissingVariantShareOneRebuild() throws Exception {
+        ImageStore store = spy(new LocalImageStore(dir.toString()));
+        imageVariantService = new ImageVariantService(store, dir.resolve("work").toString(), 2, 10);
+        ImageIO.write(new BufferedImage(2000, 1500, BufferedImage.TYPE_INT_RGB), "jpg", dir.resolve("photo.jpg").toFile());
+
+        List<CompletableFuture<Boolean>> rebuilds = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            rebuilds.add(imageVariantService.rebuild("photo-w320.jpg"));
+        }
+
+        for (CompletableFuture<Boolean> rebuild : rebuilds) {
+            assertThat(rebuild.get(10, TimeUnit.SECONDS)).isTrue();
+        }
+        verify(store, times(1)).put(eq("photo-w320.jpg"), any());
+        assertThat(ImageIO.read(dir.resolve("photo-w320.jpg").toFile()).getWidth()).isEqualTo(320);
+    }
+
+    @Test
+    void namesThatAreNotVariantsAreNotRebuilt() throws Exception {
+        imageVariantService = new ImageVariantService(new LocalImageStore(dir.toString()), dir.toString(), 1, 1);
+
+        assertThat(imageVariantService.rebuild("photo.jpg").get()).isFalse();
+        assertThat(imageVariantService.rebuild("photo-w123.jpg").get()).isFalse();
+        assertThat(imageVariantService.rebuild("..-w320.jpg").get()).isFalse();
+        assertThat(imageVariantService.rebuild("missing-w320.jpg").get(10, TimeUnit.SECONDS)).isFalse();
+    }
+}
@@ -0,0 +1,55 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.AuthenticatedUser;
+import com.farming.rental.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    @Test
+    void missingSecretFailsOutsideTheDevProfile() {
+        assertThatThrownBy(() -> new JwtService("", 15, 60, new MockEnvironment()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("jwt.secret is not set");
+
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+        assertThat(new JwtService("", 15, 60, dev).createAccessToken(user())).isNotBlank();
+    }
+
+    @Test
+    void shortSecretFails() {
+        String shortSecret = Base64.getEncoder().encodeToString(new byte[16]);
+        assertThatThrownBy(() -> new JwtService(shortSecret, 15, 60, new MockEnvironment()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("128 bits");
+    }
+
+    @Test
+    void streamTicketsAndAccessTokensAreNotInterchangeable() {
+        JwtService jwtService = new JwtService(SECRET, 15, 60, new MockEnvironment());
+        String accessToken = jwtService.createAccessToken(user());
+        AuthenticatedUser caller = jwtService.parseAccessToken(accessToken).orElseThrow();
+        String ticket = jwtService.createStreamTicket(caller);
+
+        assertThat(jwtService.parseStreamTicket(ticket)).contains(caller);
+        assertThat(jwtService.parseAccessToken(ticket)).isEmpty();
+        assertThat(jwtService.parseStreamTicket(accessToken)).isEmpty();
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId("6650f1c2a1b2c3d4e5f60718");
+        user.setRole(User.UserRole.FARMER);
+        user.setPhoneNumber("9876543210");
+        return user;
+    }
+}
@@ -0,0 +1,120 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.MessageBucket;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MessageBucketStoreTest extends MongoIntegrationTest {
+
+    @Autowired
+    private MessageBucketStore messageBucketStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void concurrentMarkReadCountsEachMessageOnce() throws Exception {
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        String bookingId = new ObjectId().toHexString();
+        // Spans several buckets, with replies in between that stay unread
+        for (int i = 0; i < 350; i++) {
+            boolean toOwner = i % 7 != 0;
+            messageBucketStore.append(message(bookingId, toOwner ? farmer : owner, toOwner ? owner : farmer, i));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Callable<Long>> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            readers.add(() -> messageBucketStore.markRead(bookingId, owner.getId()));
+        }
+        long marked = 0;
+        try {
+            for (Future<Long> result : pool.invokeAll(readers)) {
+                marked += result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(marked).isEqualTo(300);
+        assertThat(messageBucketStore.markRead(bookingId, owner.getId())).isZero();
+        assertThat(messageBucketStore.markRead(bookingId, farmer.getId())).isEqualTo(50);
+    }
+
+    @Test
+    void incrementalSyncFindsNewerMessagesInAnOlderOpenBucket() {
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        String bookingId = new ObjectId().toHexString();
+        LocalDateTime start = LocalDateTime.now().minusMinutes(10);
+        // Two buckets left open by racing first messages
+        Message first = message(bookingId, farmer, owner, 1);
+        first.setId(new ObjectId().toHexString());
+        first.setCreatedAt(start);
+        Message second = message(bookingId, owner, farmer, 2);
+        second.setId(new ObjectId().toHexString());
+        second.setCreatedAt(start.plusMinutes(1));
+        mongoTemplate.insert(bucket(bookingId, first));
+        mongoTemplate.insert(bucket(bookingId, second));
+
+        // The next append lands in whichever open bucket matches first; force the older one
+        Message third = message(bookingId, farmer, owner, 3);
+        third.setId(new ObjectId().toHexString());
+        third.setCreatedAt(start.plusMinutes(2));
+        mongoTemplate.updateFirst(new Query(Criteria.where("bookingId").is(bookingId).and("firstAt").is(start)),
+            new Update().push("messages", MessageBucket.Entry.of(third)).inc("count", 1)
+                .max("lastAt", third.getCreatedAt()), MessageBucket.class);
+
+        assertThat(messageBucketStore.find(bookingId, second.getId())).extracting(Message::getId)
+            .containsExactly(third.getId());
+        assertThat(messageBucketStore.find(bookingId, first.getId())).extracting(Message::getId)
+            .containsExactly(second.getId(), third.getId());
+        assertThat(messageBucketStore.find(bookingId, third.getId())).isEmpty();
+        assertThat(messageBucketStore.find(bookingId, null)).hasSize(3);
+    }
+
+    private static MessageBucket bucket(String bookingId, Message message) {
+        MessageBucket bucket = new MessageBucket();
+        bucket.setBookingId(bookingId);
+        bucket.setCount(1);
+        bucket.setFirstAt(message.getCreatedAt());
+        bucket.setLastAt(message.getCreatedAt());
+        bucket.getMessages().add(MessageBucket.Entry.of(message));
+        return bucket;
+    }
+
+    private static Message message(String bookingId, User sender, User receiver, int sequence) {
+        Message message = new Message();
+        message.setBookingId(bookingId);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent("Message " + sequence);
+        message.setCreatedAt(LocalDateTime.now());
+        message.setIsRead(false);
+        return message;
+    }
+}
@@ -0,0 +1,114 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.MessageBucket;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.MessageRepository;
+import com.farming.rental.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Write and read throughput of one document per message versus per-booking buckets
+ * Run with mvn test -Pbenchmark; results are logged.
+ */
+@Slf4j
+@Tag("benchmark")
+class MessageLayoutBenchmarkTest extends MongoIntegrationTest {
+
+    private static final int BOOKINGS = 200;
+    private static final int MESSAGES_PER_BOOKING = 250;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageBucketStore messageBucketStore;
+
+    @Autowired
+    private ReferenceBatchLoader referenceBatchLoader;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void compareLayouts() {
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        mongoTemplate.dropCollection(Message.class);
+        mongoTemplate.dropCollection(MessageBucket.class);
+        List<String> bookingIds = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            bookingIds.add(new ObjectId().toHexString());
+        }
+
+        measureWrites("document per message", bookingIds, farmer, owner, messageRepository::save);
+        measureWrites("bucketed", bookingIds, farmer, owner, messageBucketStore::append);
+
+        measureReads("document per message", bookingIds, bookingId -> referenceBatchLoader.find(
+            new Query(Criteria.where("bookingId").is(bookingId)).with(Sort.by("createdAt", "id")), Message.class));
+        measureReads("bucketed", bookingIds, bookingId -> messageBucketStore.find(bookingId, null));
+
+        logStorage(mongoTemplate.getCollectionName(Message.class));
+        logStorage(mongoTemplate.getCollectionName(MessageBucket.class));
+    }
+
+    private void measureWrites(String layout, List<String> bookingIds, User farmer, User owner, Consumer<Message> write) {
+        long started = System.nanoTime();
+        // Interleaved across bookings, the way concurrent negotiations arrive
+        for (int i = 0; i < MESSAGES_PER_BOOKING; i++) {
+            for (String bookingId : bookingIds) {
+                boolean fromFarmer = i % 2 == 0;
+                Message message = new Message();
+                message.setBookingId(bookingId);
+                message.setSender(fromFarmer ? farmer : owner);
+                message.setReceiver(fromFarmer ? owner : farmer);
+                message.setContent("Can you do a better price for " + i + " days?");
+                message.setCreatedAt(LocalDateTime.now());
+                message.setIsRead(false);
+                write.accept(message);
+            }
+        }
+        report(layout + " writes", BOOKINGS * MESSAGES_PER_BOOKING, started);
+    }
+
+    private void measureReads(String layout, List<String> bookingIds, Function<String, List<Message>> read) {
+        long started = System.nanoTime();
+        for (String bookingId : bookingIds) {
+            assertThat(read.apply(bookingId)).hasSize(MESSAGES_PER_BOOKING);
+        }
+        report(layout + " conversation reads", BOOKINGS, started);
+    }
+
+    private void logStorage(String collection) {
+        Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+        log.info("{}: {} documents, {} bytes of data, {} bytes of indexes", collection,
+            stats.get("count"), stats.get("size"), stats.get("totalIndexSize"));
+    }
+
+    private static void report(String what, int operations, long startedNanos) {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        log.info("{}: {} in {} ms ({} ops/s)", what, operations, Math.round(seconds * 1000), Math.round(operations / seconds));
+    }
+}
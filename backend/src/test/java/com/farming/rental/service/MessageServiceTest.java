@@ -0,0 +1,57 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Message;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.MessageRepository;
+import com.farming.rental.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MessageServiceTest extends MongoIntegrationTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void messagesSinceACursorIncludeLaterOnesWithTheSameTimestamp() {
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        String bookingId = new ObjectId().toHexString();
+        LocalDateTime sentAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Message first = save(bookingId, farmer, owner, sentAt);
+        Message sameTime = save(bookingId, owner, farmer, sentAt);
+        Message later = save(bookingId, farmer, owner, sentAt.plusSeconds(1));
+
+        assertThat(messageService.getMessages(bookingId, first.getId())).extracting(Message::getId)
+            .containsExactly(sameTime.getId(), later.getId());
+        assertThat(messageService.getMessages(bookingId, later.getId())).isEmpty();
+        assertThatThrownBy(() -> messageService.getMessages(new ObjectId().toHexString(), first.getId()))
+            .hasMessage("Unknown message cursor");
+    }
+
+    private Message save(String bookingId, User sender, User receiver, LocalDateTime createdAt) {
+        Message message = new Message();
+        message.setBookingId(bookingId);
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setContent("Is it available next week?");
+        message.setCreatedAt(createdAt);
+        message.setIsRead(false);
+        return messageRepository.save(message);
+    }
+}
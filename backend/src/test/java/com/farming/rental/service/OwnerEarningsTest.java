@@ -0,0 +1,67 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.BookingRepository;
+import com.farming.rental.repository.EquipmentRepository;
+import com.farming.rental.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OwnerEarningsTest extends MongoIntegrationTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Test
+    void sumsConfirmedAndCompletedBookings() {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        Equipment equipment = equipmentRepository.save(TestData.equipment(owner));
+
+        saveBooking(farmer, equipment, Booking.BookingStatus.CONFIRMED, "1500.50");
+        saveBooking(farmer, equipment, Booking.BookingStatus.COMPLETED, "2000.25");
+        saveBooking(farmer, equipment, Booking.BookingStatus.PENDING, "700");
+        saveBooking(farmer, equipment, Booking.BookingStatus.CANCELLED, "900");
+
+        assertThat(bookingService.getOwnerEarnings(owner)).isEqualByComparingTo("3500.75");
+    }
+
+    @Test
+    void ownerWithoutEarningBookingsHasNoEarnings() {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        Equipment equipment = equipmentRepository.save(TestData.equipment(owner));
+        saveBooking(farmer, equipment, Booking.BookingStatus.PENDING, "700");
+
+        assertThat(bookingService.getOwnerEarnings(owner)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    private void saveBooking(User farmer, Equipment equipment, Booking.BookingStatus status, String amount) {
+        Booking booking = new Booking();
+        booking.setFarmer(farmer);
+        booking.setEquipment(equipment);
+        booking.setStartDate(LocalDate.now().plusDays(1));
+        booking.setEndDate(LocalDate.now().plusDays(2));
+        booking.setStatus(status);
+        booking.setTotalAmount(new BigDecimal(amount));
+        bookingRepository.save(booking);
+    }
+}
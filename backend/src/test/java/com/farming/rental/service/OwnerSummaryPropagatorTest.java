@@ -0,0 +1,81 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.OwnerSummary;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.EquipmentRepository;
+import com.farming.rental.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OwnerSummaryPropagatorTest extends MongoIntegrationTest {
+
+    @Autowired
+    private OwnerSummaryPropagator ownerSummaryPropagator;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void profileUpdateRewritesSummariesImmediately() {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        List<Equipment> fleet = saveFleet(owner, 3);
+
+        owner.setFullName("Renamed Owner");
+        owner.setCity("Nashik");
+        userService.updateUserProfile(owner);
+
+        assertThat(summariesOf(fleet)).containsOnly(OwnerSummary.of(owner));
+    }
+
+    @Test
+    void reconcileRepairsMissingAndStaleSummaries() {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        List<Equipment> fleet = saveFleet(owner, 3);
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(fleet.get(0).getId())),
+            new Update().unset("ownerSummary"), Equipment.class);
+        // A profile change whose propagation never happened
+        owner.setFullName("Changed Elsewhere");
+        userRepository.save(owner);
+
+        ownerSummaryPropagator.reconcile();
+
+        assertThat(summariesOf(fleet)).containsOnly(OwnerSummary.of(owner));
+    }
+
+    private List<Equipment> saveFleet(User owner, int size) {
+        List<Equipment> fleet = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Equipment equipment = TestData.equipment(owner);
+            equipment.setOwnerSummary(OwnerSummary.of(owner));
+            fleet.add(equipmentRepository.save(equipment));
+        }
+        return fleet;
+    }
+
+    private List<OwnerSummary> summariesOf(List<Equipment> fleet) {
+        return fleet.stream()
+            .map(equipment -> equipmentRepository.findById(equipment.getId()).orElseThrow().getOwnerSummary())
+            .toList();
+    }
+}
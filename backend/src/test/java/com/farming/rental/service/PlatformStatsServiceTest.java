@@ -0,0 +1,67 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.BookingRepository;
+import com.farming.rental.repository.EquipmentRepository;
+import com.farming.rental.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlatformStatsServiceTest extends MongoIntegrationTest {
+
+    @Autowired
+    private PlatformStatsService platformStatsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Test
+    void rebuildSumsRevenueOfConfirmedAndCompletedBookings() {
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        Equipment equipment = equipmentRepository.save(TestData.equipment(owner));
+        saveBooking(farmer, equipment, Booking.BookingStatus.CONFIRMED, "1200.40");
+        saveBooking(farmer, equipment, Booking.BookingStatus.COMPLETED, "800.35");
+        saveBooking(farmer, equipment, Booking.BookingStatus.PENDING, "500");
+        saveBooking(farmer, equipment, Booking.BookingStatus.CANCELLED, "300");
+
+        // Other test classes share the database, so compare with everything stored
+        BigDecimal expected = bookingRepository.findAll().stream()
+            .filter(booking -> booking.getStatus() == Booking.BookingStatus.CONFIRMED
+                || booking.getStatus() == Booking.BookingStatus.COMPLETED)
+            .map(Booking::getTotalAmount)
+            .filter(Objects::nonNull)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        assertThat(platformStatsService.rebuild().getTotalRevenue()).isEqualByComparingTo(expected);
+        assertThat(platformStatsService.getStats().getTotalRevenue()).isEqualByComparingTo(expected);
+        assertThat(expected).isGreaterThanOrEqualTo(new BigDecimal("2000.75"));
+    }
+
+    private void saveBooking(User farmer, Equipment equipment, Booking.BookingStatus status, String amount) {
+        Booking booking = new Booking();
+        booking.setFarmer(farmer);
+        booking.setEquipment(equipment);
+        booking.setStartDate(LocalDate.now().plusDays(1));
+        booking.setEndDate(LocalDate.now().plusDays(2));
+        booking.setStatus(status);
+        booking.setTotalAmount(new BigDecimal(amount));
+        bookingRepository.save(booking);
+    }
+}
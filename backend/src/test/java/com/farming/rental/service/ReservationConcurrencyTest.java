@@ -0,0 +1,158 @@
+package com.farming.rental.service;
+
+import com.farming.rental.MongoIntegrationTest;
+import com.farming.rental.TestData;
+import com.farming.rental.entity.Booking;
+import com.farming.rental.entity.Equipment;
+import com.farming.rental.entity.EquipmentReservation;
+import com.farming.rental.entity.User;
+import com.farming.rental.repository.EquipmentRepository;
+import com.farming.rental.repository.UserRepository;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires thousands of parallel reservations at a few pieces of equipment and checks that
+ * no two accepted reservations overlap
+ */
+class ReservationConcurrencyTest extends MongoIntegrationTest {
+
+    private static final int THREADS = 64;
+
+    @Autowired
+    private ReservationLedger reservationLedger;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EquipmentRepository equipmentRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Calls straight into the ledger, bypassing the in-process lock, the way requests
+     * arriving on different instances would
+     */
+    @Test
+    void parallelLedgerReservationsNeverOverlap() throws Exception {
+        String equipmentId = new ObjectId().toHexString();
+        Random random = new Random(42);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            long start = random.nextInt(24 * 60);
+            long end = start + random.nextInt(48);
+            EquipmentReservation.Slot slot = new EquipmentReservation.Slot(new ObjectId().toHexString(), start, end);
+            attempts.add(() -> reservationLedger.reserve(equipmentId, slot).isPresent());
+        }
+
+        int accepted = countSuccesses(attempts);
+
+        List<EquipmentReservation.Slot> slots = reservationLedger.load(equipmentId).orElseThrow().getSlots();
+        assertThat(slots).hasSize(accepted);
+        assertNoOverlaps(slots);
+    }
+
+    @Test
+    void parallelBookingsNeverOverlap() throws Exception {
+        User farmer = userRepository.save(TestData.user(User.UserRole.FARMER));
+        User owner = userRepository.save(TestData.user(User.UserRole.OWNER));
+        List<Equipment> fleet = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            fleet.add(equipmentRepository.save(TestData.equipment(owner)));
+        }
+
+        Random random = new Random(7);
+        LocalDate firstDay = LocalDate.now().plusDays(1);
+        List<Callable<Boolean>> attempts = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            Equipment equipment = fleet.get(random.nextInt(fleet.size()));
+            LocalDate start = firstDay.plusDays(random.nextInt(120));
+            LocalDate end = start.plusDays(random.nextInt(4));
+            attempts.add(() -> {
+                Booking booking = new Booking();
+                booking.setFarmer(farmer);
+                booking.setEquipment(equipment);
+                booking.setStartDate(start);
+                booking.setEndDate(end);
+                booking.setPricePerDay(BigDecimal.TEN);
+                bookingService.createBooking(booking);
+                return true;
+            });
+        }
+
+        int accepted = countSuccesses(attempts);
+
+        int stored = 0;
+        for (Equipment equipment : fleet) {
+            List<Booking> bookings = mongoTemplate.find(new Query(Criteria.where("equipment").is(equipment.getId())
+                .and("status").ne(Booking.BookingStatus.CANCELLED)), Booking.class);
+            stored += bookings.size();
+            assertNoOverlaps(bookings.stream().map(EquipmentReservation.Slot::forBooking).toList());
+            assertThat(reservationLedger.load(equipment.getId()).orElseThrow().getSlots()).hasSize(bookings.size());
+        }
+        assertThat(stored).isEqualTo(accepted);
+    }
+
+    /**
+     * Run the calls in parallel and count those that returned true; "not available" failures count as rejections
+     */
+    private int countSuccesses(List<Callable<Boolean>> calls) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger accepted = new AtomicInteger();
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Boolean> call : calls) {
+                results.add(pool.submit(() -> {
+                    try {
+                        return call.call();
+                    } catch (RuntimeException e) {
+                        assertThat(e).hasMessageContaining("not available");
+                        return false;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    accepted.incrementAndGet();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(accepted.get()).isPositive().isLessThan(calls.size());
+        return accepted.get();
+    }
+
+    private static void assertNoOverlaps(List<EquipmentReservation.Slot> slots) {
+        List<EquipmentReservation.Slot> sorted = new ArrayList<>(slots);
+        sorted.sort(Comparator.comparingLong(EquipmentReservation.Slot::getStart));
+        for (int i = 1; i < sorted.size(); i++) {
+            assertThat(sorted.get(i).getStart())
+                .as("slot %s overlaps %s", sorted.get(i), sorted.get(i - 1))
+                .isGreaterThan(sorted.get(i - 1).getEnd());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.farming.rental.service;
+
+import com.farming.rental.dto.SmsMessage;
+import com.farming.rental.entity.SmsDeadLetter;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SmsDispatcherTest {
+
+    @Test
+    void stopDeadLettersMessagesWaitingForRetry() throws Exception {
+        SmsGateway gateway = mock(SmsGateway.class);
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        doThrow(new IllegalStateException("gateway down")).when(gateway).send(any());
+
+        // A backoff far longer than the test, so both messages are still waiting when it stops
+        SmsDispatcher dispatcher = new SmsDispatcher(gateway, mongoTemplate, 10, 1, 10, 5, 60_000);
+        dispatcher.start();
+        dispatcher.enqueue(new SmsMessage("9000000001", "Your verification code is 123456."));
+        dispatcher.enqueue(new SmsMessage("9000000001", "Your verification code is 123456."));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dispatcher.getPendingRetryCount() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(dispatcher.getPendingRetryCount()).isEqualTo(2);
+        dispatcher.stop();
+
+        ArgumentCaptor<SmsDeadLetter> letters = ArgumentCaptor.forClass(SmsDeadLetter.class);
+        verify(mongoTemplate, times(2)).insert(letters.capture());
+        assertThat(letters.getAllValues()).allSatisfy(letter -> {
+            assertThat(letter.getText()).isEqualTo("Your verification code is ******.");
+            assertThat(letter.getError()).isEqualTo("Shut down before retry");
+        });
+    }
+
+    @Test
+    void redactLeavesShortNumbersAlone() {
+        assertThat(SmsDispatcher.redact("Code 4821, valid for 5 minutes"))
+            .isEqualTo("Code ******, valid for 5 minutes");
+        assertThat(SmsDispatcher.redact(null)).isNull();
+    }
+}
@@ -1,11 +1,73 @@
 import axios from 'axios';
 
+const ACCESS_TOKEN_KEY = 'accessToken';
+const REFRESH_TOKEN_KEY = 'refreshToken';
+
 const api = axios.create({
     baseURL: 'http://localhost:8080', // Backend URL
-    withCredentials: true, // For cookies/session
     headers: {
         'Content-Type': 'application/json',
     },
 });
 
+export const getAccessToken = () => localStorage.getItem(ACCESS_TOKEN_KEY);
+export const getRefreshToken = () => localStorage.getItem(REFRESH_TOKEN_KEY);
+
+export const storeTokens = ({ accessToken, refreshToken }) => {
+    localStorage.setItem(ACCESS_TOKEN_KEY, accessToken);
+    localStorage.setItem(REFRESH_TOKEN_KEY, refreshToken);
+};
+
+export const clearTokens = () => {
+    localStorage.removeItem(ACCESS_TOKEN_KEY);
+    localStorage.removeItem(REFRESH_TOKEN_KEY);
+};
+
+api.interceptors.request.use((config) => {
+    const token = getAccessToken();
+    if (token) {
+        config.headers.Authorization = `Bearer ${token}`;
+    }
+    return config;
+});
+
+// Concurrent 401s share one refresh call; the refresh token is single-use
+let refreshing = null;
+
+export const refreshTokens = () => {
+    if (!refreshing) {
+        const refreshToken = getRefreshToken();
+        refreshing = (refreshToken
+            ? axios.post(`${api.defaults.baseURL}/api/auth/refresh`, { refreshToken })
+                .then((response) => {
+                    storeTokens(response.data);
+                    return response.data.accessToken;
+                })
+            : Promise.reject(new Error('Not logged in')))
+            .catch((err) => {
+                clearTokens();
+                throw err;
+            })
+            .finally(() => {
+                refreshing = null;
+            });
+    }
+    return refreshing;
+};
+
+api.interceptors.response.use(
+    (response) => response,
+    async (error) => {
+        const request = error.config;
+        if (error.response?.status === 401 && request && !request._retried && getRefreshToken()
+            && !request.url?.startsWith('/api/auth/')) {
+            request._retried = true;
+            const token = await refreshTokens();
+            request.headers.Authorization = `Bearer ${token}`;
+            return api(request);
+        }
+        return Promise.reject(error);
+    }
+);
+
 export default api;
@@ -1,8 +1,11 @@
 import api from './axios';
 
 const ReviewService = {
-    getEquipmentReviews: async (equipmentId) => {
-        const response = await api.get(`/api/public/equipment/${equipmentId}/reviews`);
+    // Returns { summary: { average, count, histogram }, reviews: { items, nextCursor, hasMore } }
+    getEquipmentReviews: async (equipmentId, { sort = 'NEWEST', cursor, size = 10 } = {}) => {
+        const response = await api.get(`/api/public/equipment/${equipmentId}/reviews`, {
+            params: { sort, cursor, size }
+        });
         return response.data;
     },
 
@@ -4,12 +4,15 @@ import { X, Send, Phone, MapPin, User, Loader } from 'lucide-react';
 import api from '../api/axios';
 import { useAuth } from '../context/useAuth';
 
+const FALLBACK_POLL_MS = 30000;
+
 const ChatModal = ({ isOpen, onClose, booking }) => {
     const { user: currentUser } = useAuth();
     const [messages, setMessages] = useState([]);
     const [newMessage, setNewMessage] = useState('');
     const [loading, setLoading] = useState(true);
     const messagesEndRef = useRef(null);
+    const lastMessageIdRef = useRef(null);
 
     const scrollToBottom = () => {
         messagesEndRef.current?.scrollIntoView({ behavior: "smooth" });
@@ -18,19 +21,68 @@ const ChatModal = ({ isOpen, onClose, booking }) => {
     useEffect(() => {
         if (isOpen && booking) {
             fetchMessages();
-            const interval = setInterval(fetchMessages, 5000); // Poll for new messages
-            return () => clearInterval(interval);
+
+            // New messages are pushed by the server; the browser reconnects the stream on its own.
+            // EventSource can not send headers, so the stream is opened with a short-lived ticket.
+            let stream = null;
+            let closed = false;
+            let disconnected = false;
+            const openStream = async () => {
+                let ticket;
+                try {
+                    ticket = (await api.post('/api/messages/stream-ticket')).data.ticket;
+                } catch (err) {
+                    console.error('Failed to open message stream', err);
+                    return;
+                }
+                if (closed) return;
+                stream = new EventSource(
+                    `${api.defaults.baseURL}/api/messages/stream?ticket=${encodeURIComponent(ticket)}`);
+                stream.addEventListener('message', (event) => {
+                    const message = JSON.parse(event.data);
+                    if (message.bookingId === booking.id) {
+                        addMessage(message);
+                        if (message.sender?.id !== currentUser.id) {
+                            markRead();
+                        }
+                    }
+                });
+                stream.onerror = () => {
+                    disconnected = true;
+                    if (stream.readyState === EventSource.CLOSED && !closed) {
+                        // Rejected, most likely because the ticket expired before a reconnect: get a new one
+                        openStream();
+                    }
+                };
+                stream.onopen = () => {
+                    // Catch up on anything sent while the stream was down
+                    if (disconnected) {
+                        disconnected = false;
+                        fetchNewMessages();
+                    }
+                };
+            };
+            openStream();
+            // Slow safety net in case a pushed message never reaches this stream
+            const fallbackPoll = setInterval(fetchNewMessages, FALLBACK_POLL_MS);
+            return () => {
+                closed = true;
+                clearInterval(fallbackPoll);
+                stream?.close();
+            };
         }
     }, [isOpen, booking]);
 
     useEffect(() => {
         scrollToBottom();
+        lastMessageIdRef.current = messages.length > 0 ? messages[messages.length - 1].id : null;
     }, [messages]);
 
     const fetchMessages = async () => {
         try {
             const response = await api.get(`/api/messages/${booking.id}`);
             setMessages(response.data);
+            markRead();
         } catch (err) {
             console.error('Failed to fetch messages', err);
         } finally {
@@ -38,6 +90,32 @@ const ChatModal = ({ isOpen, onClose, booking }) => {
         }
     };
 
+    // Only fetch what arrived after the last message we already have
+    const fetchNewMessages = async () => {
+        if (!lastMessageIdRef.current) {
+            return fetchMessages();
+        }
+        try {
+            const response = await api.get(`/api/messages/${booking.id}`, {
+                params: { since: lastMessageIdRef.current }
+            });
+            response.data.forEach(addMessage);
+            if (response.data.length > 0) {
+                markRead();
+            }
+        } catch (err) {
+            console.error('Failed to fetch new messages', err);
+        }
+    };
+
+    const markRead = () => {
+        api.post(`/api/messages/${booking.id}/read`).catch((err) => console.error('Failed to mark messages read', err));
+    };
+
+    const addMessage = (message) => {
+        setMessages((current) => current.some((m) => m.id === message.id) ? current : [...current, message]);
+    };
+
     const handleSendMessage = async (e) => {
         e.preventDefault();
         if (!newMessage.trim()) return;
@@ -47,7 +125,7 @@ const ChatModal = ({ isOpen, onClose, booking }) => {
                 bookingId: booking.id,
                 content: newMessage
             });
-            setMessages([...messages, response.data]);
+            addMessage(response.data);
             setNewMessage('');
         } catch (err) {
             alert('Failed to send message');
@@ -1,5 +1,5 @@
 import { useState, useEffect } from 'react';
-import api from '../api/axios';
+import api, { clearTokens, getRefreshToken, storeTokens } from '../api/axios';
 import { AuthContext } from './useAuth';
 
 export const AuthProvider = ({ children }) => {
@@ -11,13 +11,13 @@ export const AuthProvider = ({ children }) => {
     }, []);
 
     const checkAuth = async () => {
+        if (!getRefreshToken()) {
+            setLoading(false);
+            return;
+        }
         try {
-            // We need an endpoint to check current session.
-            // Ideally backend should have /api/auth/me
-            // For now we assume if we make a request and get 401, we are logged out.
-            // But we will implement a proper check later.
-            // Skipping for now, defaulting to null.
-            const response = await api.get('/api/auth/me'); // We need to add this endpoint
+            // An expired access token is refreshed by the api interceptor
+            const response = await api.get('/api/auth/me');
             setUser(response.data);
         } catch (error) {
             setUser(null);
@@ -30,16 +30,18 @@ export const AuthProvider = ({ children }) => {
         const response = await api.post('/api/auth/verify-otp', null, {
             params: { phoneNumber, otp }
         });
-        // The backend redirects, but for REST API we want JSON.
-        // We need to refactor backend to return JSON for API calls.
-        // For now assuming we refactored backend.
-        setUser(response.data);
-        return response.data;
+        storeTokens(response.data);
+        setUser(response.data.user);
+        return response.data.user;
     };
 
     const logout = async () => {
-        await api.post('/api/auth/logout');
-        setUser(null);
+        try {
+            await api.post('/api/auth/logout', { refreshToken: getRefreshToken() });
+        } finally {
+            clearTokens();
+            setUser(null);
+        }
     };
 
     return (
@@ -44,7 +44,7 @@ const EquipmentDetailsPage = () => {
                     ReviewService.getEquipmentReviews(id)
                 ]);
                 setEquipment(eqData);
-                setReviews(revData);
+                setReviews(revData.reviews.items);
             } catch (err) {
                 setError('Failed to load details.');
             } finally {
@@ -133,7 +133,7 @@ const EquipmentDetailsPage = () => {
                         <motion.div initial={{ opacity: 0 }} animate={{ opacity: 1 }} className="bg-white rounded-3xl shadow-sm border border-gray-100 overflow-hidden">
                             <div className="h-[400px] bg-gray-100 relative">
                                 {equipment.imageUrl ? (
-                                    <img src={`http://localhost:8080${equipment.imageUrl}`} alt={equipment.name} className="w-full h-full object-cover" />
+                                    <img src={`http://localhost:8080${equipment.mediumUrl || equipment.imageUrl}`} alt={equipment.name} className="w-full h-full object-cover" />
                                 ) : (
                                     <div className="w-full h-full flex items-center justify-center text-gray-300"><Tractor size={100} /></div>
                                 )}